@@ -0,0 +1,68 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import fr.ensibs.laanaoui.introspector.ParserProfile;
+import fr.ensibs.laanaoui.introspector.SourceFileAnalyzer;
+import fr.ensibs.laanaoui.introspector.SourceWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SourceFileAnalyzer}, parse and extraction together: one operation analyzes every file of the
+ * corpus on a single thread, with a full parse or in structure-only mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzeBenchmark {
+
+    @Param({"fixture", "synthetic-3000"})
+    public String corpus;
+
+    @Param({"default", "fast"})
+    public String profile;
+
+    @Param({"false", "true"})
+    public boolean structureOnly;
+
+    private Path root;
+    private List<Path> files;
+    private SourceFileAnalyzer analyzer;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Corpus.resolve(corpus);
+        files = new SourceWalker(".java", true, List.of(), List.of(), true, 1).walk(root).files();
+        analyzer = new SourceFileAnalyzer(ParserProfile.of(profile), structureOnly);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Corpus.delete(root);
+    }
+
+    @Benchmark
+    public void analyze(Blackhole blackhole) throws IOException {
+        for (Path file : files) {
+            blackhole.consume(analyzer.analyze(file));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.github.javaparser.ast.CompilationUnit;
+import fr.ensibs.laanaoui.introspector.Introspector;
+import fr.ensibs.laanaoui.introspector.ParserProfile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the heap retained by the syntax trees of a corpus under each {@link ParserProfile}. Heap sizes are
+ * sampled after full collections, so run it alone:
+ * {@code java -cp benchmarks.jar fr.ensibs.laanaoui.introspector.benchmark.AstFootprint [corpus]}, where the corpus
+ * defaults to {@code synthetic-3000}.
+ */
+public final class AstFootprint {
+
+    private AstFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path root = Corpus.resolve(args.length > 0 ? args[0] : "synthetic-3000");
+        try {
+            for (ParserProfile profile : ParserProfile.values()) {
+                long before = usedHeap();
+                List<CompilationUnit> compilationUnits = Introspector.parseJavaFiles(root.toString(), 1, profile);
+                long bytes = usedHeap() - before;
+                System.out.printf("%-8s %,d bytes/file (%d files)%n", profile + ":", bytes / compilationUnits.size(),
+                                  compilationUnits.size());
+                compilationUnits = null;
+            }
+        } finally {
+            Corpus.delete(root);
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,30 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that every result comes with its allocation rate in bytes per
+ * operation ({@code gc.alloc.rate.norm}) next to the throughput in operations per second. The results are also
+ * written to {@code jmh-result.json}. The usual JMH command line options are accepted, e.g. a benchmark regex.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                           .parent(new CommandLineOptions(args))
+                           .addProfiler(GCProfiler.class)
+                           .resultFormat(ResultFormatType.JSON)
+                           .result("jmh-result.json")
+                           .build())
+                .run();
+    }
+}
@@ -0,0 +1,119 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The source trees the benchmarks run on: the ISM-SpringBoot fixture of the repository, or a synthetic corpus of
+ * generated DTO, service and controller classes.
+ * <p>
+ * A corpus is named {@code fixture} or {@code synthetic-<classes>}. The fixture is looked up under
+ * {@code projet-test/ISM-SpringBoot} from the working directory or its parent, or at the path of the
+ * {@code introspector.fixture} system property.
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    static Path resolve(String name) throws IOException {
+        if ("fixture".equals(name)) {
+            return fixture();
+        }
+        if (name.startsWith("synthetic-")) {
+            return generate(Integer.parseInt(name.substring("synthetic-".length())));
+        }
+        throw new IllegalArgumentException("Unknown corpus: " + name);
+    }
+
+    static void delete(Path directory) {
+        if (directory.startsWith(Paths.get(System.getProperty("java.io.tmpdir")))) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static Path fixture() {
+        String property = System.getProperty("introspector.fixture");
+        if (property != null) {
+            return Paths.get(property);
+        }
+        for (Path candidate : new Path[]{Paths.get("projet-test/ISM-SpringBoot"),
+                Paths.get("../projet-test/ISM-SpringBoot")}) {
+            if (Files.isDirectory(candidate)) {
+                return candidate.toAbsolutePath().normalize();
+            }
+        }
+        throw new IllegalStateException("ISM-SpringBoot fixture not found, set -Dintrospector.fixture=<path>");
+    }
+
+    /**
+     * Generates {@code classes} classes in a temporary directory, as triples of a DTO, a service interface and its
+     * implementation spread over packages of 100 files.
+     */
+    static Path generate(int classes) throws IOException {
+        Path root = Files.createTempDirectory("introspector-corpus");
+        for (int i = 0; i < classes; i++) {
+            String packageName = "com.acme.module" + (i / 100);
+            Path directory = root.resolve(packageName.replace('.', '/'));
+            Files.createDirectories(directory);
+            String name = switch (i % 3) {
+                case 0 -> "Entity" + i + "DTO";
+                case 1 -> "Entity" + i + "Service";
+                default -> "Entity" + i + "ServiceImpl";
+            };
+            Files.writeString(directory.resolve(name + ".java"), source(packageName, name, i));
+        }
+        return root;
+    }
+
+    private static String source(String packageName, String name, int index) {
+        StringBuilder out = new StringBuilder();
+        out.append("package ").append(packageName).append(";\n\n")
+           .append("import java.util.List;\n\n");
+        switch (index % 3) {
+            case 0 -> {
+                out.append("/**\n * Data transfer object number ").append(index).append(".\n */\n")
+                   .append("public class ").append(name).append(" {\n\n");
+                String[] types = {"int", "String", "Integer", "List<String>", "long"};
+                for (int f = 0; f < types.length; f++) {
+                    out.append("    private ").append(types[f]).append(" field").append(f).append(";\n");
+                }
+                for (int f = 0; f < types.length; f++) {
+                    out.append("\n    public ").append(types[f]).append(" getField").append(f).append("() {\n")
+                       .append("        return field").append(f).append(";\n    }\n")
+                       .append("\n    public void setField").append(f).append("(").append(types[f])
+                       .append(" field").append(f).append(") {\n")
+                       .append("        this.field").append(f).append(" = field").append(f).append(";\n    }\n");
+                }
+            }
+            case 1 -> out.append("public interface ").append(name).append(" {\n\n")
+                         .append("    List<String> findAll();\n\n")
+                         .append("    String findById(int id);\n\n")
+                         .append("    void save(String value, Integer version);\n");
+            default -> {
+                out.append("public class ").append(name).append(" extends Object implements ")
+                   .append("Entity").append(index - 1).append("Service {\n\n")
+                   .append("    private final List<String> values = new java.util.ArrayList<>();\n\n")
+                   .append("    @Override\n    public List<String> findAll() {\n")
+                   .append("        // returns every value\n        return values;\n    }\n\n")
+                   .append("    @Override\n    public String findById(int id) {\n")
+                   .append("        for (String value : values) {\n")
+                   .append("            if (value.hashCode() == id) {\n                return value;\n            }\n")
+                   .append("        }\n        return null;\n    }\n\n")
+                   .append("    @Override\n    public void save(String value, Integer version) {\n")
+                   .append("        if (version != null && version > 0) {\n            values.add(value);\n")
+                   .append("        }\n    }\n");
+            }
+        }
+        return out.append("}\n").toString();
+    }
+}
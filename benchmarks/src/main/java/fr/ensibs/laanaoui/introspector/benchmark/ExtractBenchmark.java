@@ -0,0 +1,95 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import fr.ensibs.laanaoui.introspector.ClassExtractor;
+import fr.ensibs.laanaoui.introspector.Introspector;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction from already parsed compilation units: one operation extracts every class of the corpus. The
+ * single-pass {@link ClassExtractor} is compared with the {@link RecordExtractor} it replaced, which builds the same
+ * records, and with the {@link LegacyExtractor} building Jackson nodes before them; {@link
+ * ClassExtractor#calculateLinesOfCode} is measured on its own over every method. The setup prints the number of
+ * nodes each extractor visits per operation, counted by a {@link VisitCounter} on a second parse of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractBenchmark {
+
+    @Param({"fixture", "synthetic-3000"})
+    public String corpus;
+
+    private List<CompilationUnit> compilationUnits;
+    private List<MethodDeclaration> methods;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Corpus.resolve(corpus);
+        List<CompilationUnit> counted;
+        try {
+            compilationUnits = Introspector.parseJavaFiles(root.toString(), 1);
+            counted = Introspector.parseJavaFiles(root.toString(), 1);
+        } finally {
+            Corpus.delete(root);
+        }
+        methods = compilationUnits.stream().flatMap(cu -> cu.findAll(MethodDeclaration.class).stream()).toList();
+        VisitCounter counter = new VisitCounter(counted);
+        System.out.printf("nodes visited: %,d by the single pass, %,d by the record baseline, %,d by the legacy%n",
+                          counter.count(() -> counted.forEach(cu -> ClassExtractor.extract("", cu))),
+                          counter.count(() -> counted.forEach(cu -> RecordExtractor.extract("", cu))),
+                          counter.count(() -> counted.forEach(LegacyExtractor::extract)));
+    }
+
+    @Benchmark
+    public void singlePassVisitor(Blackhole blackhole) {
+        for (CompilationUnit cu : compilationUnits) {
+            FileAnalysis analysis = ClassExtractor.extract("", cu);
+            blackhole.consume(analysis);
+        }
+    }
+
+    @Benchmark
+    public void recordBaseline(Blackhole blackhole) {
+        for (CompilationUnit cu : compilationUnits) {
+            blackhole.consume(RecordExtractor.extract("", cu));
+        }
+    }
+
+    @Benchmark
+    public void legacyLambdas(Blackhole blackhole) {
+        for (CompilationUnit cu : compilationUnits) {
+            blackhole.consume(LegacyExtractor.extract(cu));
+        }
+    }
+
+    @Benchmark
+    public int calculateLinesOfCode() {
+        int total = 0;
+        for (MethodDeclaration method : methods) {
+            total += ClassExtractor.calculateLinesOfCode(method);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,91 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import fr.ensibs.laanaoui.introspector.ClassExtractor;
+
+/**
+ * The extraction as it was done in {@code Introspector.main} before the single-pass visitor: {@code findAll},
+ * then {@code getFields()}, then {@code getMethods()} twice, building Jackson nodes. Kept as a baseline.
+ */
+final class LegacyExtractor {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private LegacyExtractor() {
+    }
+
+    static ObjectNode extract(CompilationUnit cu) {
+        ArrayNode classesArray = mapper.createArrayNode();
+        ArrayNode relationsArray = mapper.createArrayNode();
+        cu.findAll(ClassOrInterfaceDeclaration.class).forEach(clazz -> {
+            if ("MavenWrapperDownloader".equals(clazz.getNameAsString())) {
+                return;
+            }
+
+            ObjectNode classNode = mapper.createObjectNode();
+            classNode.put("name", clazz.getNameAsString());
+            classNode.put("package", cu.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse(""));
+            classNode.put("type", clazz.isInterface() ? "interface" : "class");
+            classNode.put("modifiers", clazz.getModifiers().toString().replace("[", "").replace("]", ""));
+
+            ArrayNode fieldsArray = mapper.createArrayNode();
+            clazz.getFields().forEach(field -> {
+                ObjectNode fieldNode = mapper.createObjectNode();
+                fieldNode.put("name", field.getVariable(0).getNameAsString());
+                fieldNode.put("type", field.getVariable(0).getTypeAsString());
+                fieldsArray.add(fieldNode);
+            });
+            classNode.set("fields", fieldsArray);
+
+            ArrayNode methodsArray = mapper.createArrayNode();
+            clazz.getMethods().forEach(method -> {
+                ObjectNode methodNode = mapper.createObjectNode();
+                methodNode.put("name", method.getNameAsString());
+                ArrayNode paramsArray = mapper.createArrayNode();
+                method.getParameters().forEach(param -> {
+                    ObjectNode paramNode = mapper.createObjectNode();
+                    paramNode.put("name", param.getNameAsString());
+                    paramNode.put("type", param.getTypeAsString());
+                    paramsArray.add(paramNode);
+                });
+                methodNode.set("parameters", paramsArray);
+                methodNode.put("linesOfCode", ClassExtractor.calculateLinesOfCode(method));
+                methodsArray.add(methodNode);
+            });
+            classNode.set("methods", methodsArray);
+            classesArray.add(classNode);
+
+            clazz.getExtendedTypes().forEach(extendedType -> {
+                ObjectNode relationNode = mapper.createObjectNode();
+                relationNode.put("source", clazz.getNameAsString());
+                relationNode.put("target", extendedType.getNameAsString());
+                relationNode.put("type", "extends");
+                relationsArray.add(relationNode);
+            });
+            clazz.getImplementedTypes().forEach(implementedType -> {
+                ObjectNode relationNode = mapper.createObjectNode();
+                relationNode.put("source", clazz.getNameAsString());
+                relationNode.put("target", implementedType.getNameAsString());
+                relationNode.put("type", "implements");
+                relationsArray.add(relationNode);
+            });
+            clazz.getMethods().forEach(method -> method.getParameters().forEach(param -> {
+                ObjectNode relationNode = mapper.createObjectNode();
+                relationNode.put("source", clazz.getNameAsString());
+                relationNode.put("target", param.getTypeAsString());
+                relationNode.put("type", "uses");
+                relationsArray.add(relationNode);
+            }));
+        });
+
+        ObjectNode root = mapper.createObjectNode();
+        root.set("classes", classesArray);
+        root.set("relations", relationsArray);
+        return root;
+    }
+}
@@ -0,0 +1,83 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import fr.ensibs.laanaoui.introspector.ClassExtractor;
+import fr.ensibs.laanaoui.introspector.Introspector;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisReader;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of a written analysis back into the model, per output format: one operation reads the whole document of
+ * the corpus. The size of each document is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"fixture", "synthetic-3000"})
+    public String corpus;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private JsonAnalysisReader reader;
+    private File document;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Corpus.resolve(corpus);
+        List<FileAnalysis> analyses;
+        try {
+            analyses = Introspector.parseJavaFiles(root.toString(), 1).stream()
+                                   .map(cu -> ClassExtractor.extract("", cu))
+                                   .toList();
+        } finally {
+            Corpus.delete(root);
+        }
+
+        OutputFormat outputFormat = OutputFormat.of(format);
+        document = Files.createTempFile("introspector-load", outputFormat.fileName("")).toFile();
+        try (JsonAnalysisWriter writer = JsonAnalysisWriter.create(document, outputFormat, false, false)) {
+            for (FileAnalysis analysis : analyses) {
+                writer.accept(analysis);
+            }
+            writer.finish();
+        }
+        System.out.println(format + " document: " + document.length() + " bytes");
+        reader = new JsonAnalysisReader(outputFormat);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(document.toPath());
+    }
+
+    @Benchmark
+    public FileAnalysis load() throws IOException {
+        return reader.read(document);
+    }
+}
@@ -0,0 +1,101 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.ProjectModel;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the heap retained per class by plain {@link FileAnalysis} records and by the interned
+ * {@link ProjectModel}, on a generated corpus of 100k classes. Heap sizes are sampled after full collections, so
+ * run it alone: {@code java -cp benchmarks.jar fr.ensibs.laanaoui.introspector.benchmark.ModelFootprint}. The
+ * {@link ModelFootprintTest} fails the build when the model loses its edge.
+ */
+public final class ModelFootprint {
+
+    private static final int CLASSES = 100_000;
+
+    private ModelFootprint() {
+    }
+
+    public static void main(String[] args) {
+        Footprint footprint = measure();
+        System.out.printf("records:       %,d bytes/class%n", footprint.recordBytesPerClass());
+        System.out.printf("project model: %,d bytes/class (%d symbols)%n", footprint.modelBytesPerClass(),
+                          footprint.symbols());
+    }
+
+    /**
+     * Measures the heap retained by the records, then by the model, of the generated corpus.
+     */
+    static Footprint measure() {
+        long before = usedHeap();
+        List<FileAnalysis> records = new ArrayList<>(CLASSES);
+        for (int i = 0; i < CLASSES; i++) {
+            records.add(generate(i));
+        }
+        long recordBytes = usedHeap() - before;
+        if (records.size() != CLASSES) {
+            throw new IllegalStateException("Generated " + records.size() + " files");
+        }
+        records = null;
+
+        before = usedHeap();
+        ProjectModel model = new ProjectModel();
+        for (int i = 0; i < CLASSES; i++) {
+            model.put(generate(i));
+        }
+        long modelBytes = usedHeap() - before;
+        if (model.classCount() != CLASSES) {
+            throw new IllegalStateException("The model holds " + model.classCount() + " classes");
+        }
+        return new Footprint(recordBytes / CLASSES, modelBytes / CLASSES, model.symbols().size());
+    }
+
+    /**
+     * Builds the analysis of a DTO-like class with fresh strings, as the parser would.
+     */
+    private static FileAnalysis generate(int index) {
+        String name = "Entity" + index;
+        List<FieldInfo> fields = new ArrayList<>();
+        List<MethodInfo> methods = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+        String[] types = {"int", "String", "Integer", "List<String>"};
+        for (int f = 0; f < types.length; f++) {
+            fields.add(new FieldInfo(copy("field" + f), copy(types[f])));
+            methods.add(new MethodInfo(copy("getField" + f), List.of(), 3));
+            methods.add(new MethodInfo(copy("setField" + f),
+                                       List.of(new ParameterInfo(copy("field" + f), copy(types[f]))), 3));
+            relations.add(new Relation(copy(name), copy(types[f]), copy("uses")));
+        }
+        ClassInfo clazz = new ClassInfo(name, copy("com.acme.module" + index / 100), copy("class"), copy("public "),
+                                        fields, methods);
+        return new FileAnalysis("Entity" + index + ".java", List.of(clazz), relations);
+    }
+
+    private static String copy(String value) {
+        return new String(value.toCharArray());
+    }
+
+    /**
+     * The heap retained per class by the records and by the model, and the number of symbols the model interned.
+     */
+    record Footprint(long recordBytesPerClass, long modelBytesPerClass, int symbols) {
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,19 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import fr.ensibs.laanaoui.introspector.model.ProjectModel;
+
+/**
+ * Fails the build when the {@link ProjectModel} no longer retains less than half the heap per class of plain records,
+ * on the generated 100k-class corpus of {@link ModelFootprint}. It is a plain class that surefire runs without a test
+ * framework, so the benchmarks module, which compiles it too, needs none.
+ */
+public class ModelFootprintTest {
+
+    public void testModelRetainsLessThanHalfOfTheRecords() {
+        ModelFootprint.Footprint footprint = ModelFootprint.measure();
+        if (footprint.modelBytesPerClass() * 2 >= footprint.recordBytesPerClass()) {
+            throw new AssertionError("The project model retains " + footprint.modelBytesPerClass()
+                                             + " bytes per class, the records " + footprint.recordBytesPerClass());
+        }
+    }
+}
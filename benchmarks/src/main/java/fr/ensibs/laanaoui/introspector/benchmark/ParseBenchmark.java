@@ -0,0 +1,63 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.github.javaparser.ast.CompilationUnit;
+import fr.ensibs.laanaoui.introspector.Introspector;
+import fr.ensibs.laanaoui.introspector.ParserProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Introspector#parseJavaFiles}: one operation walks and parses the whole corpus, with the
+ * default or the fast {@link ParserProfile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"fixture", "synthetic-3000"})
+    public String corpus;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"default", "fast"})
+    public String profile;
+
+    private Path root;
+    private ParserProfile parserProfile;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Corpus.resolve(corpus);
+        parserProfile = ParserProfile.of(profile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Corpus.delete(root);
+    }
+
+    @Benchmark
+    public List<CompilationUnit> parseJavaFiles() {
+        return Introspector.parseJavaFiles(root.toString(), threads, parserProfile);
+    }
+}
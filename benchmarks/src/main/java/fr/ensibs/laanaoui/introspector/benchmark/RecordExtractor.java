@@ -0,0 +1,66 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import fr.ensibs.laanaoui.introspector.ClassExtractor;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The extraction into records as it was done before the single-pass {@link ClassExtractor}: {@code findAll}, then
+ * {@code getFields()}, then {@code getMethods()} twice. It builds the same {@link FileAnalysis} as the single pass,
+ * so it is the baseline the single pass is measured against. The {@link LegacyExtractor} walks the tree the same
+ * way, building Jackson nodes.
+ */
+final class RecordExtractor {
+
+    private RecordExtractor() {
+    }
+
+    static FileAnalysis extract(String source, CompilationUnit cu) {
+        List<ClassInfo> classes = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+        String packageName = cu.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse("");
+
+        cu.findAll(ClassOrInterfaceDeclaration.class).forEach(clazz -> {
+            if ("MavenWrapperDownloader".equals(clazz.getNameAsString())) {
+                return;
+            }
+
+            String modifiers = clazz.getModifiers().toString().replace("[", "").replace("]", "");
+
+            List<FieldInfo> fields = new ArrayList<>();
+            clazz.getFields().forEach(field -> fields.add(
+                    new FieldInfo(field.getVariable(0).getNameAsString(), field.getVariable(0).getTypeAsString())));
+
+            List<MethodInfo> methods = new ArrayList<>();
+            clazz.getMethods().forEach(method -> {
+                List<ParameterInfo> parameters = new ArrayList<>();
+                method.getParameters().forEach(param -> parameters.add(
+                        new ParameterInfo(param.getNameAsString(), param.getTypeAsString())));
+                methods.add(new MethodInfo(method.getNameAsString(), parameters,
+                                           ClassExtractor.calculateLinesOfCode(method)));
+            });
+
+            classes.add(new ClassInfo(clazz.getNameAsString(), packageName,
+                                      clazz.isInterface() ? "interface" : "class", modifiers, fields, methods));
+
+            clazz.getExtendedTypes().forEach(extendedType -> relations.add(
+                    new Relation(clazz.getNameAsString(), extendedType.getNameAsString(), "extends")));
+            clazz.getImplementedTypes().forEach(implementedType -> relations.add(
+                    new Relation(clazz.getNameAsString(), implementedType.getNameAsString(), "implements")));
+            clazz.getMethods().forEach(method -> method.getParameters().forEach(param -> relations.add(
+                    new Relation(clazz.getNameAsString(), param.getTypeAsString(), "uses"))));
+        });
+
+        return new FileAnalysis(source, classes, relations);
+    }
+}
@@ -0,0 +1,76 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.ClassExtractor;
+import fr.ensibs.laanaoui.introspector.Introspector;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON writing of already extracted results: one operation writes the whole corpus to a discarding stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+    @Param({"fixture", "synthetic-3000"})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean pretty;
+
+    @Param({"false", "true"})
+    public boolean rawRelations;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private List<FileAnalysis> analyses;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path root = Corpus.resolve(corpus);
+        try {
+            analyses = Introspector.parseJavaFiles(root.toString(), 1).stream()
+                                   .map(cu -> ClassExtractor.extract("", cu))
+                                   .toList();
+        } finally {
+            Corpus.delete(root);
+        }
+    }
+
+    @Benchmark
+    public void writeJson() throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(OutputStream.nullOutputStream(), JsonEncoding.UTF8);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        try (JsonAnalysisWriter writer = new JsonAnalysisWriter(generator, rawRelations)) {
+            for (FileAnalysis analysis : analyses) {
+                writer.accept(analysis);
+            }
+            writer.finish();
+        }
+    }
+}
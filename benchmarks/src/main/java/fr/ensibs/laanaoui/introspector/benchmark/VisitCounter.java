@@ -0,0 +1,178 @@
+package fr.ensibs.laanaoui.introspector.benchmark;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.metamodel.PropertyMetaModel;
+
+import java.io.Serial;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Counts the nodes an extraction visits, that is the nodes it reads out of the children of other nodes, whether
+ * through a traversal such as {@code walk}, {@code stream} or {@code findAll}, or through an accessor such as
+ * {@code getMembers()} or {@code getParameters()}. The child lists of the given trees are replaced with lists
+ * counting the elements read from them, so these trees must not be used for timing.
+ */
+final class VisitCounter {
+
+    private static final Field CHILD_NODES = accessible(Node.class, "childNodes");
+    private static final Field INNER_LIST = accessible(NodeList.class, "innerList");
+
+    private long visits;
+
+    VisitCounter(List<CompilationUnit> compilationUnits) {
+        List<Node> nodes = compilationUnits.stream().flatMap(cu -> cu.findAll(Node.class).stream()).toList();
+        try {
+            for (Node node : nodes) {
+                CHILD_NODES.set(node, new CountingList<>((List<?>) CHILD_NODES.get(node)));
+                for (PropertyMetaModel property : node.getMetaModel().getAllPropertyMetaModels()) {
+                    if (property.isNodeList() && property.getValue(node) instanceof NodeList<?> list) {
+                        INNER_LIST.set(list, new CountingList<>((List<?>) INNER_LIST.get(list)));
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs {@code extraction} and returns the number of nodes it visited.
+     */
+    long count(Runnable extraction) {
+        visits = 0;
+        extraction.run();
+        return visits;
+    }
+
+    private static Field accessible(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("JavaParser no longer has " + type.getSimpleName() + "." + name, e);
+        }
+    }
+
+    private final class CountingList<E> extends ArrayList<E> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        CountingList(Collection<? extends E> elements) {
+            super(elements);
+        }
+
+        @Override
+        public E get(int index) {
+            visits++;
+            return super.get(index);
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            super.forEach(element -> {
+                visits++;
+                action.accept(element);
+            });
+        }
+
+        @Override
+        public Object[] toArray() {
+            visits += size();
+            return super.toArray();
+        }
+
+        @Override
+        public <T> T[] toArray(T[] array) {
+            visits += size();
+            return super.toArray(array);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            return new CountingIterator<>(super.listIterator(index));
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED | Spliterator.SIZED);
+        }
+    }
+
+    private final class CountingIterator<E> implements ListIterator<E> {
+
+        private final ListIterator<E> iterator;
+
+        CountingIterator(ListIterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            visits++;
+            return iterator.next();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return iterator.hasPrevious();
+        }
+
+        @Override
+        public E previous() {
+            visits++;
+            return iterator.previous();
+        }
+
+        @Override
+        public int nextIndex() {
+            return iterator.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return iterator.previousIndex();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        @Override
+        public void set(E element) {
+            iterator.set(element);
+        }
+
+        @Override
+        public void add(E element) {
+            iterator.add(element);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package fr.ensibs.laanaoui.introspector;
+
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.cache.AnalysisCache;
+import fr.ensibs.laanaoui.introspector.metrics.FileAnalysisEvent;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.output.AnalysisSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams input files through the parse, extract and emit stages.
+ * <p>
+ * A walker thread submits one parse-and-extract task per file to the worker pool and pushes its future into a
+ * bounded queue; the calling thread takes the futures in submission order and hands each {@link FileAnalysis} to
+ * the sink. The syntax tree of a file is dropped as soon as its facts are extracted, and the queue bounds the
+ * number of files in flight: when the sink falls behind, the walker blocks instead of piling up results.
+ * <p>
+ * Every file analysis is a {@link FileAnalysisEvent} for JFR. With {@link PipelineMetrics}, the files, classes and
+ * relations are counted and the time spent in the sink is recorded as the serialize stage.
+ */
+public final class AnalysisPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPipeline.class);
+
+    private static final Future<FileAnalysis> END_OF_STREAM = CompletableFuture.completedFuture(null);
+
+    private final int threads;
+    private final int queueCapacity;
+    private final Supplier<FileAnalyzer> analyzers;
+    private final AnalysisCache cache;
+    private final PipelineMetrics metrics;
+
+    public AnalysisPipeline(int threads, int queueCapacity) {
+        this(threads, queueCapacity, SourceFileAnalyzer::new, null);
+    }
+
+    /**
+     * @param analyzers creates the analyzer of each worker thread
+     * @param cache     the per-file result cache, or {@code null} to analyze every file
+     */
+    public AnalysisPipeline(int threads, int queueCapacity, Supplier<FileAnalyzer> analyzers, AnalysisCache cache) {
+        this(threads, queueCapacity, analyzers, cache, null);
+    }
+
+    /**
+     * @param analyzers creates the analyzer of each worker thread
+     * @param cache     the per-file result cache, or {@code null} to analyze every file
+     * @param metrics   the metrics of the run, or {@code null} not to measure it
+     */
+    public AnalysisPipeline(int threads, int queueCapacity, Supplier<FileAnalyzer> analyzers, AnalysisCache cache,
+                            PipelineMetrics metrics) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.analyzers = analyzers;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analyzes the given source files and passes the results to {@code sink}, in the order of the stream. The sink
+     * is always called from the calling thread.
+     */
+    public void run(Stream<Path> sourceFiles, AnalysisSink sink) throws IOException {
+        if (threads <= 1) {
+            FileAnalyzer analyzer = analyzers.get();
+            for (Iterator<Path> it = sourceFiles.iterator(); it.hasNext(); ) {
+                emit(sink, analyze(analyzer, it.next()));
+            }
+            return;
+        }
+
+        ThreadLocal<FileAnalyzer> workerAnalyzers = ThreadLocal.withInitial(analyzers);
+        BlockingQueue<Future<FileAnalysis>> inFlight = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<RuntimeException> walkFailure = new AtomicReference<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, daemonThreads("introspector-worker-"));
+
+        Thread walker = new Thread(() -> {
+            try {
+                sourceFiles.forEach(path -> enqueue(inFlight,
+                                                    workers.submit(() -> analyze(workerAnalyzers.get(), path))));
+            } catch (RuntimeException e) {
+                walkFailure.set(e);
+            } finally {
+                try {
+                    inFlight.put(END_OF_STREAM);
+                } catch (InterruptedException e) {
+                    // the consumer gave up, nobody is waiting for the end of the stream
+                }
+            }
+        }, "introspector-walker");
+        walker.setDaemon(true);
+        walker.start();
+
+        try {
+            for (Future<FileAnalysis> next = inFlight.take(); next != END_OF_STREAM; next = inFlight.take()) {
+                emit(sink, next.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        } finally {
+            walker.interrupt();
+            workers.shutdownNow();
+        }
+
+        if (walkFailure.get() != null) {
+            throw walkFailure.get();
+        }
+    }
+
+    private void emit(AnalysisSink sink, FileAnalysis analysis) throws IOException {
+        if (metrics == null) {
+            sink.accept(analysis);
+            return;
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        sink.accept(analysis);
+        metrics.record(Stage.SERIALIZE, start, allocated);
+    }
+
+    private byte[] read(Path path) throws IOException {
+        if (metrics == null) {
+            return Files.readAllBytes(path);
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        byte[] content = Files.readAllBytes(path);
+        metrics.record(Stage.READ, start, allocated);
+        metrics.addBytesRead(content.length);
+        return content;
+    }
+
+    private FileAnalysis analyze(FileAnalyzer analyzer, Path path) {
+        FileAnalysisEvent event = new FileAnalysisEvent();
+        event.begin();
+        FileAnalysis analysis = null;
+        boolean cached = false;
+        try {
+            if (cache != null) {
+                analysis = cache.lookup(path).orElse(null);
+                cached = analysis != null;
+            }
+            if (!cached && cache == null) {
+                analysis = analyzer.analyze(path);
+            } else if (!cached) {
+                // the cache records the hash of the very bytes the analysis comes from
+                byte[] content = read(path);
+                analysis = analyzer.analyze(path, content);
+                if (!analyzer.lastOverBudget()) {
+                    cache.store(path, content, analysis);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error parsing file: {}", path, e);
+            analysis = FileAnalysis.empty(ClassFiles.source(path));
+        }
+        if (metrics != null) {
+            metrics.fileAnalyzed(analysis, cached);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path.toString();
+            event.cached = cached;
+            event.classes = analysis.classes().size();
+            event.relations = analysis.relations().size();
+            event.commit();
+        }
+        return analysis;
+    }
+
+    private static void enqueue(BlockingQueue<Future<FileAnalysis>> queue, Future<FileAnalysis> future) {
+        try {
+            queue.put(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,222 @@
+package fr.ensibs.laanaoui.introspector;
+
+import java.util.BitSet;
+
+/**
+ * Reduces a Java source to its declarations, so that the parser does not build the statements of method bodies.
+ * <p>
+ * The scanner follows the member declarations of each type body. A brace opening a method, constructor or
+ * initializer body has its content dropped, and so do comments and the indentation of lines. Line breaks are always
+ * kept, so every remaining declaration stays on its line and the lines of code computed from the ranges do not
+ * change; columns do. Braces that open a type body are descended into. Braces within parentheses, after an
+ * {@code =} (field initializers, lambdas, anonymous classes) or after the {@code default} of an annotation element
+ * are kept as they are.
+ * <p>
+ * A body holding the {@code class} or {@code interface} keyword is kept, as the local classes it may declare are
+ * part of the analysis. The scan is lexical: string and character literals and text blocks are skipped, and any
+ * source it cannot follow is at worst left with more than needed.
+ */
+final class BodyStripper {
+
+    private final char[] source;
+    private final BitSet dropped = new BitSet();
+    private int position;
+
+    private BodyStripper(String source) {
+        this.source = source.toCharArray();
+    }
+
+    static String strip(String source) {
+        BodyStripper stripper = new BodyStripper(source);
+        stripper.members();
+        StringBuilder stripped = new StringBuilder(source.length() - stripper.dropped.cardinality());
+        for (int i = 0; i < stripper.source.length; i++) {
+            if (!stripper.dropped.get(i)) {
+                stripped.append(stripper.source[i]);
+            }
+        }
+        return stripped.toString();
+    }
+
+    /**
+     * Scans the member declarations of the top level or of a type body, up to the brace closing the body.
+     */
+    private void members() {
+        int parentheses = 0;
+        boolean initializer = false;
+        boolean typeDeclaration = false;
+        boolean parameters = false;
+        while (position < source.length) {
+            char c = source[position];
+            if (skipTrivia()) {
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = position;
+                skipIdentifier();
+                if (parentheses == 0) {
+                    typeDeclaration |= isWord(start, "class") || isWord(start, "interface") || isWord(start, "enum")
+                            || isWord(start, "record");
+                    // the default value of an annotation element, not a default method
+                    initializer |= parameters && isWord(start, "default");
+                }
+                continue;
+            }
+            position++;
+            switch (c) {
+                case '(' -> parentheses++;
+                case ')' -> {
+                    parentheses = Math.max(0, parentheses - 1);
+                    parameters |= parentheses == 0;
+                }
+                case '=' -> initializer |= parentheses == 0;
+                case ';' -> {
+                    if (parentheses == 0) {
+                        initializer = false;
+                        typeDeclaration = false;
+                        parameters = false;
+                    }
+                }
+                case '{' -> {
+                    if (parentheses > 0 || initializer) {
+                        block(false); // the declaration goes on up to its semicolon
+                    } else {
+                        if (typeDeclaration) {
+                            members();
+                        } else {
+                            block(true);
+                        }
+                        initializer = false;
+                        typeDeclaration = false;
+                        parameters = false;
+                    }
+                }
+                case '}' -> {
+                    return;
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips the block whose opening brace was just read, dropping its content if {@code body} is set and it declares
+     * no class.
+     */
+    private void block(boolean body) {
+        int content = position;
+        boolean declaresClass = false;
+        int depth = 1;
+        while (position < source.length && depth > 0) {
+            char c = source[position];
+            if (skipTrivia()) {
+                continue;
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = position;
+                skipIdentifier();
+                declaresClass |= isWord(start, "class") || isWord(start, "interface");
+                continue;
+            }
+            position++;
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+            }
+        }
+        if (body && !declaresClass && depth == 0) {
+            blank(content, position - 1);
+        }
+    }
+
+    /**
+     * Skips the whitespace, comment or literal at the current position, if any. Comments are blanked and only the
+     * first character of a run of spaces is kept.
+     */
+    private boolean skipTrivia() {
+        char c = source[position];
+        if (Character.isWhitespace(c)) {
+            if (!isLineBreak(c) && position > 0 && Character.isWhitespace(source[position - 1])) {
+                dropped.set(position);
+            }
+            position++;
+        } else if (c == '/' && next(1) == '/') {
+            int start = position;
+            while (position < source.length && !isLineBreak(source[position])) {
+                position++;
+            }
+            blank(start, position);
+        } else if (c == '/' && next(1) == '*') {
+            int start = position;
+            position += 2;
+            while (position < source.length && !(source[position] == '*' && next(1) == '/')) {
+                position++;
+            }
+            position = Math.min(position + 2, source.length);
+            blank(start, position);
+        } else if (c == '"' && next(1) == '"' && next(2) == '"') {
+            position += 3;
+            while (position < source.length && !(source[position] == '"' && next(1) == '"' && next(2) == '"')) {
+                position += source[position] == '\\' ? 2 : 1;
+            }
+            position += 3;
+        } else if (c == '"' || c == '\'') {
+            position++;
+            while (position < source.length && source[position] != c && !isLineBreak(source[position])) {
+                position += source[position] == '\\' ? 2 : 1;
+            }
+            position++;
+        } else {
+            return false;
+        }
+        position = Math.min(position, source.length);
+        return true;
+    }
+
+    /**
+     * Reduces the characters from {@code start} to {@code end} (exclusive) to a space and their line breaks, so that
+     * the tokens around them stay apart.
+     */
+    private void blank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isLineBreak(source[i])) {
+                if (i == start) {
+                    source[i] = ' ';
+                } else {
+                    dropped.set(i);
+                }
+            }
+        }
+    }
+
+    private void skipIdentifier() {
+        while (position < source.length && Character.isJavaIdentifierPart(source[position])) {
+            position++;
+        }
+    }
+
+    /**
+     * Returns whether the identifier between {@code start} and the current position is {@code word}.
+     */
+    private boolean isWord(int start, String word) {
+        if (position - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (source[start + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char next(int offset) {
+        return position + offset < source.length ? source[position + offset] : 0;
+    }
+
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r';
+    }
+}
@@ -0,0 +1,136 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the classes, fields, methods and relations of a compilation unit.
+ * <p>
+ * The facts are collected in a single pre-order walk of the tree: each class is registered when the walk reaches
+ * it, and its fields and methods are attached to it as the walk reaches them. Only direct members are attached,
+ * so methods of anonymous classes or of enums nested in a class do not leak into it, while classes declared
+ * anywhere below (nested, local) are reported on their own. The same walk counts the nodes of the tree, for the
+ * cost report of the run.
+ */
+public final class ClassExtractor {
+
+    private ClassExtractor() {
+    }
+
+    public static FileAnalysis extract(String source, CompilationUnit cu) {
+        return extractCounting(source, cu).analysis();
+    }
+
+    /**
+     * Extracts the facts of a compilation unit along with the number of nodes the walk visited.
+     */
+    public static Extraction extractCounting(String source, CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse("");
+        List<ClassFacts> classes = new ArrayList<>();
+        Map<Node, ClassFacts> declarations = new IdentityHashMap<>();
+        long[] nodes = {0};
+
+        cu.walk(node -> {
+            nodes[0]++;
+            if (node instanceof ClassOrInterfaceDeclaration clazz) {
+                ClassFacts facts = new ClassFacts(clazz);
+                declarations.put(clazz, facts);
+                if (!"MavenWrapperDownloader".equals(facts.name)) { // Skip MavenWrapperDownloader class
+                    classes.add(facts);
+                }
+            } else if (node instanceof FieldDeclaration field) {
+                ClassFacts facts = declaringClass(field, declarations);
+                if (facts != null) {
+                    facts.fields.add(new FieldInfo(field.getVariable(0).getNameAsString(),
+                                                   field.getVariable(0).getTypeAsString()));
+                }
+            } else if (node instanceof MethodDeclaration method) {
+                ClassFacts facts = declaringClass(method, declarations);
+                if (facts != null) {
+                    facts.addMethod(method);
+                }
+            }
+        });
+
+        List<ClassInfo> classInfos = new ArrayList<>(classes.size());
+        List<Relation> relations = new ArrayList<>();
+        for (ClassFacts facts : classes) {
+            classInfos.add(new ClassInfo(facts.name, packageName, facts.type, facts.modifiers, facts.fields,
+                                         facts.methods));
+            relations.addAll(facts.relations);
+            relations.addAll(facts.uses);
+        }
+        return new Extraction(new FileAnalysis(source, classInfos, relations), nodes[0]);
+    }
+
+    public static int calculateLinesOfCode(MethodDeclaration method) {
+        return method.getEnd().map(end -> end.line).orElse(0) - method.getBegin().map(begin -> begin.line).orElse(0) + 1;
+    }
+
+    private static ClassFacts declaringClass(Node member, Map<Node, ClassFacts> declarations) {
+        Node parent = member.getParentNode().orElse(null);
+        return parent == null ? null : declarations.get(parent);
+    }
+
+    /**
+     * The facts extracted from a compilation unit.
+     *
+     * @param analysis the classes and relations of the unit
+     * @param nodes    the number of nodes of its tree
+     */
+    public record Extraction(FileAnalysis analysis, long nodes) {
+    }
+
+    /**
+     * The facts collected for one class during the walk.
+     */
+    private static final class ClassFacts {
+
+        final String name;
+        final String type;
+        final String modifiers;
+        final List<FieldInfo> fields = new ArrayList<>();
+        final List<MethodInfo> methods = new ArrayList<>();
+        final List<Relation> relations = new ArrayList<>();
+        final List<Relation> uses = new ArrayList<>();
+
+        ClassFacts(ClassOrInterfaceDeclaration clazz) {
+            name = clazz.getNameAsString();
+            type = clazz.isInterface() ? "interface" : "class";
+            modifiers = clazz.getModifiers().toString().replace("[", "").replace("]", "");
+            for (ClassOrInterfaceType extendedType : clazz.getExtendedTypes()) {
+                relations.add(new Relation(name, extendedType.getNameAsString(), "extends"));
+            }
+            for (ClassOrInterfaceType implementedType : clazz.getImplementedTypes()) {
+                relations.add(new Relation(name, implementedType.getNameAsString(), "implements"));
+            }
+        }
+
+        void addMethod(MethodDeclaration method) {
+            List<ParameterInfo> parameters = new ArrayList<>(method.getParameters().size());
+            for (Parameter param : method.getParameters()) {
+                String paramType = param.getTypeAsString();
+                parameters.add(new ParameterInfo(param.getNameAsString(), paramType));
+                uses.add(new Relation(name, paramType, "uses"));
+            }
+            methods.add(new MethodInfo(method.getNameAsString(), parameters, calculateLinesOfCode(method)));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package fr.ensibs.laanaoui.introspector;
+
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Turns one input file into its classes and relations. The pipeline creates one analyzer per worker thread, so
+ * implementations do not need to be thread-safe.
+ */
+@FunctionalInterface
+public interface FileAnalyzer {
+
+    FileAnalysis analyze(Path path) throws IOException;
+
+    /**
+     * Analyzes {@code path} from its content, already read by the caller.
+     */
+    default FileAnalysis analyze(Path path, byte[] content) throws IOException {
+        return analyze(path);
+    }
+
+    /**
+     * Returns whether the last analysis was over the {@link FileBudget}, its facts being partial or missing. Such an
+     * analysis is not cached, so the file is analyzed again by the next run.
+     */
+    default boolean lastOverBudget() {
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+package fr.ensibs.laanaoui.introspector;
+
+import java.util.Locale;
+
+/**
+ * The cost a single source file may take, so that one huge generated file cannot hold up a whole run.
+ * <p>
+ * A file larger than {@code maxBytes} is not parsed in full. The time limit is checked while the parser reads the
+ * source, so a parse running over {@code maxMillis} is abandoned within a few kilobytes of input; the comment
+ * attribution and validation that follow the parse are not bounded. A file over budget either falls back to the
+ * structure-only parse, which yields the same facts for a fraction of the work, or is skipped, yielding no facts.
+ * A file that is already parsed structure-only, or whose fallback is over budget again, is skipped. The analyses of
+ * the files over budget are not cached, so a later run, whose parse may be faster, analyzes them again.
+ *
+ * @param maxBytes  the largest source parsed in full, in bytes, or {@code 0} for no limit
+ * @param maxMillis the longest parse, in milliseconds, or {@code 0} for no limit
+ * @param action    what is done with a file over budget
+ */
+public record FileBudget(long maxBytes, long maxMillis, Action action) {
+
+    public static final FileBudget UNLIMITED = new FileBudget(0, 0, Action.FALLBACK);
+
+    /**
+     * What is done with a file over budget.
+     */
+    public enum Action {
+
+        /** Parses the file again, structure-only. */
+        FALLBACK,
+
+        /** Skips the file. */
+        SKIP;
+
+        /**
+         * Returns the action with the given name, case-insensitively.
+         */
+        public static Action of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown over-budget action: " + name);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public boolean isUnlimited() {
+        return maxBytes == 0 && maxMillis == 0;
+    }
+
+    public boolean exceedsSize(long bytes) {
+        return maxBytes > 0 && bytes > maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "maxBytes=" + maxBytes + ";maxMillis=" + maxMillis + ";action=" + action;
+    }
+}
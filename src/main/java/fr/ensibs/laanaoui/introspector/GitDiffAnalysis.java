@@ -0,0 +1,177 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.cache.BlobCache;
+import fr.ensibs.laanaoui.introspector.git.BlobAnalyzer;
+import fr.ensibs.laanaoui.introspector.git.GitSources;
+import fr.ensibs.laanaoui.introspector.git.StructuralDiff;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyzes the committed sources of a git revision and compares them with those of a base revision.
+ * <p>
+ * The sources are read from the object database, so neither revision needs to be checked out. The range is written
+ * {@code base..target}, {@code base...target} to compare with the merge base of both, or as a single revision
+ * compared with its first parent; every source of a root commit is added. The target revision is analyzed in full
+ * into the usual output, and the structural diff is computed from the files that differ only: both versions of each
+ * are analyzed, and the facts of the files left untouched cancel out.
+ * <p>
+ * Every analysis goes through a {@link BlobCache}, so with a warm cache a run only parses the file versions it has
+ * never seen, and its cost follows the size of the diff rather than that of the project.
+ * <p>
+ * The run is measured into {@link PipelineMetrics}: listing the sources and changes counts as the walk, and every
+ * analysis, of the target or of either side of the diff, as a file.
+ */
+public final class GitDiffAnalysis {
+
+    private final IntrospectorOptions options;
+    private final BlobCache cache;
+    private final PipelineMetrics metrics;
+
+    /**
+     * @param metrics the metrics the run is recorded into
+     */
+    public GitDiffAnalysis(IntrospectorOptions options, BlobCache cache, PipelineMetrics metrics) {
+        this.options = options;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analyzes the range of the repository holding {@code projectRoot}, writing the target model to {@code output}
+     * and the structural diff to {@code diffOutput}. Both files are only replaced once both are complete.
+     */
+    public Summary run(Path projectRoot, Path output, Path diffOutput) throws IOException {
+        long start = System.nanoTime();
+        try (GitSources sources = GitSources.open(projectRoot, SourceWalker.javaSources(options));
+             OutputTarget.Output modelTarget = new OutputTarget(output, false).open();
+             OutputTarget.Output diffTarget = new OutputTarget(diffOutput, false).open()) {
+            RevCommit[] range = resolve(sources, options.gitRange());
+            RevCommit base = range[0];
+            RevCommit target = range[1];
+            BlobAnalyzer analyzer = new BlobAnalyzer(sources, Introspector.sourceAnalyzers(options, metrics), cache,
+                                                     options.threads(), metrics);
+
+            long walkStart = PipelineMetrics.now();
+            long walkAllocated = PipelineMetrics.allocatedBytes();
+            List<GitSources.SourceBlob> targetSources = sources.sources(target);
+            metrics.record(Stage.WALK, walkStart, walkAllocated);
+            List<FileAnalysis> targetAnalyses = analyzer.analyze(targetSources);
+            long serializeStart = PipelineMetrics.now();
+            long serializeAllocated = PipelineMetrics.allocatedBytes();
+            try (JsonAnalysisWriter writer = JsonAnalysisWriter.create(modelTarget.stream(), options.format(),
+                                                                       options.pretty(), options.rawRelations())) {
+                for (FileAnalysis analysis : targetAnalyses) {
+                    writer.accept(analysis);
+                }
+                writer.finish();
+            }
+            metrics.record(Stage.SERIALIZE, serializeStart, serializeAllocated);
+
+            walkStart = PipelineMetrics.now();
+            walkAllocated = PipelineMetrics.allocatedBytes();
+            List<GitSources.Change> changes = base == null ? added(targetSources) : sources.changes(base, target);
+            metrics.record(Stage.WALK, walkStart, walkAllocated);
+            List<GitSources.SourceBlob> before = new ArrayList<>();
+            List<GitSources.SourceBlob> after = new ArrayList<>();
+            for (GitSources.Change change : changes) {
+                if (change.before() != null) {
+                    before.add(new GitSources.SourceBlob(change.path(), change.before()));
+                }
+                if (change.after() != null) {
+                    after.add(new GitSources.SourceBlob(change.path(), change.after()));
+                }
+            }
+            StructuralDiff diff = StructuralDiff.compute(analyzer.analyze(before), analyzer.analyze(after));
+            serializeStart = PipelineMetrics.now();
+            serializeAllocated = PipelineMetrics.allocatedBytes();
+            writeDiff(diffTarget.stream(), base, target, changes, diff);
+            metrics.record(Stage.SERIALIZE, serializeStart, serializeAllocated);
+            modelTarget.commit();
+            diffTarget.commit();
+
+            return new Summary(targetSources.size(), changes.size(), analyzer.analyzed(),
+                               (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Returns the base and target commits of a range, the base being {@code null} for a root commit.
+     */
+    private static RevCommit[] resolve(GitSources sources, String range) throws IOException {
+        int threeDots = range.indexOf("...");
+        if (threeDots >= 0) {
+            RevCommit target = sources.resolve(revision(range.substring(threeDots + 3)));
+            RevCommit base = sources.mergeBase(sources.resolve(revision(range.substring(0, threeDots))), target);
+            return new RevCommit[]{base, target};
+        }
+        int twoDots = range.indexOf("..");
+        if (twoDots >= 0) {
+            return new RevCommit[]{sources.resolve(revision(range.substring(0, twoDots))),
+                    sources.resolve(revision(range.substring(twoDots + 2)))};
+        }
+        RevCommit target = sources.resolve(range);
+        return new RevCommit[]{target.getParentCount() == 0 ? null : sources.resolve(target.name() + "^"), target};
+    }
+
+    private static List<GitSources.Change> added(List<GitSources.SourceBlob> sources) {
+        return sources.stream().map(source -> new GitSources.Change(source.path(), null, source.blob())).toList();
+    }
+
+    /**
+     * Returns the revision an empty side of a range stands for, as in git.
+     */
+    private static String revision(String side) {
+        return side.isEmpty() ? "HEAD" : side;
+    }
+
+    private void writeDiff(OutputStream out, RevCommit base, RevCommit target, List<GitSources.Change> changes,
+                           StructuralDiff diff) throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            if (options.pretty()) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartObject();
+            if (base == null) {
+                generator.writeNullField("base");
+            } else {
+                generator.writeStringField("base", base.name());
+            }
+            generator.writeStringField("target", target.name());
+            generator.writeObjectFieldStart("files");
+            generator.writeNumberField("added", changes.stream().filter(change -> change.before() == null).count());
+            generator.writeNumberField("removed", changes.stream().filter(change -> change.after() == null).count());
+            generator.writeNumberField("modified", changes.stream()
+                                                          .filter(change -> change.before() != null
+                                                                  && change.after() != null)
+                                                          .count());
+            generator.writeEndObject();
+            diff.write(generator);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * The outcome of a diff analysis.
+     *
+     * @param files   the number of sources of the target revision
+     * @param changed the number of sources that differ between both revisions
+     * @param parsed  the number of file versions parsed, the others coming from the cache
+     * @param millis  the duration of the analysis
+     */
+    public record Summary(int files, int changed, int parsed, long millis) {
+    }
+}
@@ -0,0 +1,172 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.cache.BlobCache;
+import fr.ensibs.laanaoui.introspector.git.BlobAnalyzer;
+import fr.ensibs.laanaoui.introspector.git.GitSources;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Follows the metrics of a project over the first-parent history of a git revision.
+ * <p>
+ * The commits are visited oldest first. The sources of the first one are listed in full, and each following one
+ * only applies the files that differ from its parent, so unchanged subtrees are never walked. The analyses come from
+ * a {@link BlobAnalyzer}: a file version is parsed once for the whole history, and not at all when the
+ * {@link BlobCache} already holds it from a previous run.
+ * <p>
+ * The output has one JSON line per commit, holding its identifier and time, the number of source files and classes,
+ * the relation counts by type, and the metrics of the classes as {@code [fields, methods, method lines, relations]}.
+ * To keep the series compact, a line only lists the classes whose metrics changed since the previous line, and the
+ * names of the classes that disappeared; the first line lists them all.
+ * <p>
+ * The run is measured into {@link PipelineMetrics}: listing the sources and changes of the commits counts as the
+ * walk, every file version analyzed as a file, and writing the lines as the serialization.
+ */
+public final class HistoryAnalysis {
+
+    private final IntrospectorOptions options;
+    private final BlobCache cache;
+    private final PipelineMetrics metrics;
+
+    /**
+     * @param metrics the metrics the run is recorded into
+     */
+    public HistoryAnalysis(IntrospectorOptions options, BlobCache cache, PipelineMetrics metrics) {
+        this.options = options;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analyzes the last commits of the repository holding {@code projectRoot}, up to its {@code HEAD}, writing the
+     * time series to {@code output}, which is only replaced once the series is complete.
+     */
+    public Summary run(Path projectRoot, Path output) throws IOException {
+        long start = System.nanoTime();
+        try (GitSources sources = GitSources.open(projectRoot, SourceWalker.javaSources(options));
+             OutputTarget.Output target = new OutputTarget(output, false).open()) {
+            JsonGenerator generator = new JsonFactory().createGenerator(target.stream(), JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+            BlobAnalyzer analyzer = new BlobAnalyzer(sources, Introspector.sourceAnalyzers(options, metrics), cache,
+                                                     options.threads(), metrics);
+            List<RevCommit> commits = sources.history("HEAD", options.historyDepth());
+
+            Map<String, FileAnalysis> files = new TreeMap<>();
+            Map<String, int[]> previous = Map.of();
+            RevCommit parent = null;
+            for (RevCommit commit : commits) {
+                long walkStart = PipelineMetrics.now();
+                long walkAllocated = PipelineMetrics.allocatedBytes();
+                List<GitSources.SourceBlob> changed = new ArrayList<>();
+                if (parent == null) {
+                    changed.addAll(sources.sources(commit));
+                } else {
+                    for (GitSources.Change change : sources.changes(parent, commit)) {
+                        if (change.after() == null) {
+                            files.remove(change.path());
+                        } else {
+                            changed.add(new GitSources.SourceBlob(change.path(), change.after()));
+                        }
+                    }
+                }
+                metrics.record(Stage.WALK, walkStart, walkAllocated);
+                for (FileAnalysis analysis : analyzer.analyze(changed)) {
+                    files.put(analysis.source(), analysis);
+                }
+
+                Map<String, int[]> classes = new HashMap<>();
+                Map<String, Integer> relations = new TreeMap<>();
+                for (FileAnalysis analysis : files.values()) {
+                    collect(analysis, classes, relations);
+                }
+                long serializeStart = PipelineMetrics.now();
+                long serializeAllocated = PipelineMetrics.allocatedBytes();
+                writeCommit(generator, commit, files.size(), classes, previous, relations);
+                metrics.record(Stage.SERIALIZE, serializeStart, serializeAllocated);
+                previous = classes;
+                parent = commit;
+            }
+            generator.close();
+            target.commit();
+            return new Summary(commits.size(), analyzer.analyzed(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Adds the metrics of the classes of a file and counts its relations. A class declared more than once keeps its
+     * first declaration, in path order.
+     */
+    private static void collect(FileAnalysis analysis, Map<String, int[]> metrics, Map<String, Integer> relations) {
+        Map<String, Integer> outgoing = new HashMap<>();
+        for (Relation relation : analysis.relations()) {
+            relations.merge(relation.type(), 1, Integer::sum);
+            outgoing.merge(relation.source(), 1, Integer::sum);
+        }
+        for (ClassInfo clazz : analysis.classes()) {
+            String name = clazz.packageName().isEmpty() ? clazz.name() : clazz.packageName() + "." + clazz.name();
+            int lines = clazz.methods().stream().mapToInt(MethodInfo::linesOfCode).sum();
+            metrics.putIfAbsent(name, new int[]{clazz.fields().size(), clazz.methods().size(), lines,
+                    outgoing.getOrDefault(clazz.name(), 0)});
+        }
+    }
+
+    private static void writeCommit(JsonGenerator generator, RevCommit commit, int files, Map<String, int[]> metrics,
+                                    Map<String, int[]> previous, Map<String, Integer> relations) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("commit", commit.name());
+        generator.writeNumberField("time", commit.getCommitTime());
+        generator.writeNumberField("files", files);
+        generator.writeNumberField("classCount", metrics.size());
+        generator.writeObjectFieldStart("relations");
+        for (Map.Entry<String, Integer> count : relations.entrySet()) {
+            generator.writeNumberField(count.getKey(), count.getValue());
+        }
+        generator.writeEndObject();
+
+        generator.writeObjectFieldStart("classes");
+        for (Map.Entry<String, int[]> clazz : new TreeMap<>(metrics).entrySet()) {
+            if (!Arrays.equals(clazz.getValue(), previous.get(clazz.getKey()))) {
+                generator.writeFieldName(clazz.getKey());
+                generator.writeArray(clazz.getValue(), 0, clazz.getValue().length);
+            }
+        }
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("removed");
+        for (String name : new TreeMap<>(previous).keySet()) {
+            if (!metrics.containsKey(name)) {
+                generator.writeString(name);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * The outcome of a history analysis.
+     *
+     * @param commits the number of commits visited
+     * @param parsed  the number of file versions parsed, the others coming from the cache
+     * @param millis  the duration of the analysis
+     */
+    public record Summary(int commits, int parsed, long millis) {
+    }
+}
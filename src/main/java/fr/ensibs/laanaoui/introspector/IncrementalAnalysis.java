@@ -0,0 +1,231 @@
+package fr.ensibs.laanaoui.introspector;
+
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.ProjectModel;
+import fr.ensibs.laanaoui.introspector.output.AnalysisSink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link ProjectModel} of a project in memory and brings it up to date by analyzing only the files that
+ * changed, for the long-running modes.
+ * <p>
+ * Updates go through the usual {@link AnalysisPipeline} and are serialized; readers access the model through
+ * {@link #read(Function)} and never see a file half-replaced.
+ */
+public final class IncrementalAnalysis {
+
+    private final IntrospectorOptions options;
+    private final AnalysisPipeline pipeline;
+    private final ProjectModel model = new ProjectModel();
+    private final Map<String, FileStamp> stamps = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object updates = new Object();
+
+    public IncrementalAnalysis(IntrospectorOptions options) {
+        this.options = options;
+        this.pipeline = new AnalysisPipeline(options.threads(), options.queueCapacity(),
+                                             Introspector.analyzers(options), null);
+    }
+
+    /**
+     * Walks {@code root} and analyzes the files that are new or changed since the last update. Files of the model
+     * that are no longer found are removed.
+     */
+    public Update analyze(Path root) throws IOException {
+        return analyze(root, root);
+    }
+
+    /**
+     * Walks {@code directory}, a directory of the project rooted at {@code root}, with the rules of the whole
+     * project, and analyzes the files that are new or changed since the last update. Files of the model under
+     * {@code directory} that are no longer found are removed; the others are left as they are.
+     */
+    public Update analyze(Path root, Path directory) throws IOException {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        Path normalizedDirectory = directory.toAbsolutePath().normalize();
+        synchronized (updates) {
+            long start = System.nanoTime();
+            Set<String> found = new HashSet<>();
+            List<Path> changed = new ArrayList<>();
+            Map<String, FileStamp> changedStamps = new HashMap<>();
+            try (Stream<Path> files = Introspector.findInputFiles(options, normalizedRoot, normalizedDirectory)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    String source = ClassFiles.source(path);
+                    found.add(source);
+                    FileStamp stamp = FileStamp.of(path);
+                    if (!stamp.equals(stamps.get(source))) {
+                        changed.add(path);
+                        changedStamps.put(source, stamp);
+                    }
+                }
+                // archive entries can only be read while the archive is open, within this block
+                pipeline.run(changed.stream(), new ModelUpdater(changedStamps));
+            }
+
+            List<String> removed = new ArrayList<>(read(ProjectModel::sources));
+            removed.removeIf(source -> found.contains(source)
+                    || !ClassFiles.file(source).startsWith(normalizedDirectory));
+            remove(removed);
+            return new Update(changed.size(), found.size() - changed.size(), removed.size(), millisSince(start));
+        }
+    }
+
+    /**
+     * Analyzes the given files again, or removes them from the model when they no longer exist. Paths that are not
+     * analysis inputs ({@code .java} files, or {@code .class} files and archives in bytecode mode) are ignored. The
+     * entries of an archive are all analyzed again, and those it no longer holds removed, all of them if the archive
+     * was deleted.
+     */
+    public Update refresh(Collection<Path> paths) throws IOException {
+        synchronized (updates) {
+            long start = System.nanoTime();
+            List<Path> existing = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            Map<String, FileStamp> changedStamps = new HashMap<>();
+            int archiveEntries = 0;
+            for (Path path : paths) {
+                Path normalized = path.toAbsolutePath().normalize();
+                if (options.bytecode() && ClassFiles.hasArchiveName(normalized)) {
+                    archiveEntries += refreshArchive(normalized, removed);
+                    continue;
+                }
+                if (!normalized.toString().endsWith(options.bytecode() ? ".class" : ".java")) {
+                    continue;
+                }
+                if (Files.isRegularFile(normalized)) {
+                    existing.add(normalized);
+                    changedStamps.put(normalized.toString(), FileStamp.of(normalized));
+                } else {
+                    removed.add(normalized.toString());
+                }
+            }
+            pipeline.run(existing.stream(), new ModelUpdater(changedStamps));
+            int removedCount = remove(removed);
+            return new Update(existing.size() + archiveEntries, 0, removedCount, millisSince(start));
+        }
+    }
+
+    /**
+     * Analyzes the entries of {@code archive} again, and adds the sources of the entries it no longer holds to
+     * {@code removed}.
+     *
+     * @return the number of entries analyzed
+     */
+    private int refreshArchive(Path archive, List<String> removed) throws IOException {
+        Set<String> previous = new HashSet<>(read(model -> model.sources().stream()
+                                                                .filter(source -> ClassFiles.file(source)
+                                                                                            .equals(archive))
+                                                                .toList()));
+        List<Path> entries = new ArrayList<>();
+        if (Files.isRegularFile(archive)) {
+            Map<String, FileStamp> changedStamps = new HashMap<>();
+            try (Stream<Path> files = ClassFiles.find(archive, SourceWalker.classFiles(options))) {
+                for (Path entry : (Iterable<Path>) files::iterator) {
+                    String source = ClassFiles.source(entry);
+                    previous.remove(source);
+                    entries.add(entry);
+                    changedStamps.put(source, FileStamp.of(entry));
+                }
+                // archive entries can only be read while the archive is open, within this block
+                pipeline.run(entries.stream(), new ModelUpdater(changedStamps));
+            }
+        }
+        removed.addAll(previous);
+        return entries.size();
+    }
+
+    /**
+     * Runs {@code query} on the model, while no update is applied to it.
+     */
+    public <T> T read(Function<ProjectModel, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(model);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int remove(Collection<String> sources) {
+        lock.writeLock().lock();
+        try {
+            int count = 0;
+            for (String source : sources) {
+                stamps.remove(source);
+                if (model.remove(source)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * The outcome of an update.
+     *
+     * @param analyzed the number of files analyzed
+     * @param reused   the number of files left untouched
+     * @param removed  the number of files removed from the model
+     * @param millis   the duration of the update
+     */
+    public record Update(int analyzed, int reused, int removed, long millis) {
+    }
+
+    private record FileStamp(long size, long modified) {
+
+        static FileStamp of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+
+    private final class ModelUpdater implements AnalysisSink {
+
+        private final Map<String, FileStamp> changedStamps;
+
+        ModelUpdater(Map<String, FileStamp> changedStamps) {
+            this.changedStamps = changedStamps;
+        }
+
+        @Override
+        public void accept(FileAnalysis analysis) {
+            lock.writeLock().lock();
+            try {
+                model.put(analysis);
+                stamps.put(analysis.source(), changedStamps.get(analysis.source()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,140 +1,439 @@
 package fr.ensibs.laanaoui.introspector;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.nodeTypes.NodeWithName;
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFileAnalyzer;
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.cache.AnalysisCache;
+import fr.ensibs.laanaoui.introspector.cache.BlobCache;
+import fr.ensibs.laanaoui.introspector.metrics.AnalysisRunEvent;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.output.AnalysisSink;
+import fr.ensibs.laanaoui.introspector.output.ArrowAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.NdjsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+import fr.ensibs.laanaoui.introspector.output.SqliteAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.reactor.MavenReactor;
+import fr.ensibs.laanaoui.introspector.server.AnalysisServer;
+import fr.ensibs.laanaoui.introspector.watch.ProjectWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Introspector {
 
     private static final Logger logger = LoggerFactory.getLogger(Introspector.class);
 
+    public static final String VERSION = loadVersion();
+
+    /**
+     * The version of what the analyzers extract from a file, part of the {@linkplain
+     * IntrospectorOptions#extractionSettings() settings} the cached results are keyed by, to increase whenever that
+     * changes: {@link #VERSION} stays the same over the builds of a snapshot, so it alone would let a build reuse
+     * the results of another.
+     */
+    static final int EXTRACTOR_VERSION = 2;
+
+    static final String OUTPUT_NAME = "project_analysis";
+    static final String MODULES_DIRECTORY = "project_analysis_modules";
+    static final String DIFF_FILE = "project_diff.json";
+    static final String HISTORY_FILE = "project_history.ndjson";
+
     public static void main(String[] args) throws IOException {
-        if (args.length != 1) {
-            System.out.println("Usage: java Introspector <path-to-java-project>");
+        IntrospectorOptions options;
+        try {
+            options = IntrospectorOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(IntrospectorOptions.USAGE);
+            return;
+        }
+
+        if (options.serverPort() != null) {
+            serve(options);
+            return;
+        }
+        if (options.watch()) {
+            new ProjectWatcher(new IncrementalAnalysis(options), SourceWalker.inputs(options),
+                               Paths.get(options.projectPath()), outputFile(options), options.debounceMillis(),
+                               options.pretty(), options.rawRelations()).run();
+            return;
+        }
+
+        PipelineMetrics metrics = new PipelineMetrics(options.slowestFiles());
+        AnalysisRunEvent event = new AnalysisRunEvent();
+        event.begin();
+        if (options.gitRange() != null) {
+            BlobCache cache = BlobCache.open(options.cacheDirectory(), VERSION, options.extractionSettings());
+            GitDiffAnalysis.Summary summary = new GitDiffAnalysis(options, cache, metrics)
+                    .run(Paths.get(options.projectPath()), outputFile(options), diffFile(options));
+            logger.info("Analyzed {} files, {} changed, parsing {} file versions, in {} ms", summary.files(),
+                        summary.changed(), summary.parsed(), summary.millis());
+            cache.save();
+            report(metrics.summary(), event, options.metricsFile());
             return;
         }
 
-        String projectPath = args[0];
-        List<CompilationUnit> compilationUnits = parseJavaFiles(projectPath);
-        ObjectMapper mapper = new ObjectMapper();
-        ArrayNode classesArray = mapper.createArrayNode();
-        ArrayNode relationsArray = mapper.createArrayNode();
+        if (options.historyDepth() > 0) {
+            BlobCache cache = BlobCache.open(options.cacheDirectory(), VERSION, options.extractionSettings());
+            HistoryAnalysis.Summary summary = new HistoryAnalysis(options, cache, metrics)
+                    .run(Paths.get(options.projectPath()),
+                         Paths.get(options.output() != null ? options.output() : HISTORY_FILE));
+            logger.info("Analyzed {} commits, parsing {} file versions, in {} ms", summary.commits(),
+                        summary.parsed(), summary.millis());
+            cache.save();
+            report(metrics.summary(), event, options.metricsFile());
+            return;
+        }
+
+        Path projectRoot = Paths.get(options.projectPath());
+        if (options.reactor() && !MavenReactor.isReactor(projectRoot)) {
+            System.out.println("No " + MavenReactor.POM + " found in " + projectRoot);
+            return;
+        }
 
-        for (CompilationUnit cu : compilationUnits) {
-            cu.findAll(ClassOrInterfaceDeclaration.class).forEach(clazz -> {
-                if ("MavenWrapperDownloader".equals(clazz.getNameAsString())) {
-                    return; // Skip MavenWrapperDownloader class
+        AnalysisCache cache = options.cacheDirectory() == null ? null
+                : AnalysisCache.open(options.cacheDirectory(), VERSION, options.extractionSettings());
+        if (options.reactor()) {
+            ReactorAnalysis.Summary summary = new ReactorAnalysis(options, cache, metrics)
+                    .run(projectRoot, outputFile(options), modulesDirectory(options));
+            logger.info("Analyzed {} modules, reused {} unchanged ones, in {} ms", summary.analyzed(),
+                        summary.reused(), summary.millis());
+        } else {
+            analyze(options, cache, metrics);
+        }
+
+        if (cache != null) {
+            cache.save();
+        }
+        report(metrics.summary(), event, options.metricsFile());
+    }
+
+    /**
+     * Analyzes the inputs into the output file, measuring the run into {@code metrics}.
+     */
+    private static void analyze(IntrospectorOptions options, AnalysisCache cache, PipelineMetrics metrics)
+            throws IOException {
+        AnalysisPipeline pipeline = new AnalysisPipeline(options.threads(), options.queueCapacity(),
+                                                         analyzers(options, metrics), cache, metrics);
+        if (options.sqliteFile() != null) {
+            try (SqliteAnalysisWriter writer = SqliteAnalysisWriter.open(options.sqliteFile())) {
+                run(options, pipeline, metrics, writer);
+                logger.info("Exported the analysis to {}, {} files changed", options.sqliteFile(), writer.changed());
+            }
+        } else if (options.arrowDirectory() != null) {
+            try (ArrowAnalysisWriter writer = new ArrowAnalysisWriter(options.arrowDirectory())) {
+                run(options, pipeline, metrics, writer);
+            }
+            logger.info("Exported the analysis to {}", options.arrowDirectory());
+        } else {
+            OutputTarget target = outputTarget(options);
+            try (OutputTarget.Output output = target.open()) {
+                try (AnalysisSink writer = createWriter(options, output.stream())) {
+                    run(options, pipeline, metrics, writer);
                 }
+                long start = PipelineMetrics.now();
+                long allocated = PipelineMetrics.allocatedBytes();
+                output.commit();
+                metrics.record(PipelineMetrics.Stage.SERIALIZE, start, allocated);
+            }
+            logger.info("Wrote the analysis to {}", target);
+        }
+    }
+
+    /**
+     * Runs the pipeline over the inputs into {@code writer}, and finishes it.
+     */
+    private static void run(IntrospectorOptions options, AnalysisPipeline pipeline, PipelineMetrics metrics,
+                            AnalysisSink writer) throws IOException {
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        try (Stream<Path> sourceFiles = openInputFiles(options)) {
+            metrics.record(PipelineMetrics.Stage.WALK, start, allocated);
+            pipeline.run(sourceFiles, writer);
+        }
+        start = PipelineMetrics.now();
+        allocated = PipelineMetrics.allocatedBytes();
+        writer.finish();
+        metrics.record(PipelineMetrics.Stage.SERIALIZE, start, allocated);
+    }
+
+    private static void report(PipelineMetrics.Summary summary, AnalysisRunEvent event, Path metricsFile)
+            throws IOException {
+        event.end();
+        if (event.shouldCommit()) {
+            event.files = summary.files();
+            event.cachedFiles = summary.cachedFiles();
+            event.classes = summary.classes();
+            event.relations = summary.relations();
+            event.bytesRead = summary.bytesRead();
+            event.walkMillis = summary.stages().get("walk").millis();
+            event.readMillis = summary.stages().get("read").millis();
+            event.parseMillis = summary.stages().get("parse").millis();
+            event.extractMillis = summary.stages().get("extract").millis();
+            event.serializeMillis = summary.stages().get("serialize").millis();
+            event.commit();
+        }
+
+        logger.info("Analyzed {} files ({} cached), {} classes and {} relations in {} ms: {} files/s, {} classes/s, "
+                            + "{} KiB read", summary.files(), summary.cachedFiles(), summary.classes(),
+                    summary.relations(), summary.millis(), summary.filesPerSecond(), summary.classesPerSecond(),
+                    summary.bytesRead() / 1024);
+        summary.stages().forEach((stage, figures) -> logger.info("  {}: {} ms over {} calls, {} MiB allocated",
+                                                                   stage, figures.millis(), figures.count(),
+                                                                   figures.allocatedBytes() / (1024 * 1024)));
+        if (!summary.slowestFiles().isEmpty()) {
+            logger.info("Slowest files:");
+            summary.slowestFiles().forEach(cost -> logger.info("  {} ms parse, {} ms extract, {} nodes, {} KiB: {}",
+                                                               cost.parseMicros() / 1000, cost.extractMicros() / 1000,
+                                                               cost.nodes(), cost.bytes() / 1024, cost.path()));
+        }
+        if (!summary.overBudget().isEmpty()) {
+            logger.warn("{} files over budget", summary.overBudget().size());
+        }
+        if (metricsFile != null) {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(metricsFile.toFile(), summary);
+        }
+    }
+
+    private static void serve(IntrospectorOptions options) throws IOException {
+        Path projectRoot = Paths.get(options.projectPath()).toAbsolutePath().normalize();
+        IncrementalAnalysis analysis = new IncrementalAnalysis(options);
+        IncrementalAnalysis.Update update = analysis.analyze(projectRoot);
+        logger.info("Analyzed {} files in {} ms", update.analyzed(), update.millis());
+
+        AnalysisServer server = new AnalysisServer(analysis, projectRoot, SourceWalker.inputs(options),
+                                                   options.rawRelations(), options.serverPort());
+        server.start();
+        // the standard output only carries the token, for the process that started the server
+        System.out.println(server.token());
+        try {
+            server.awaitShutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop();
+        }
+    }
+
+    /**
+     * Returns the analysis output file: the one given on the command line, else {@code project_analysis} with the
+     * extension of the output format, and {@code .gz} when compressed.
+     */
+    static Path outputFile(IntrospectorOptions options) {
+        if (options.output() != null) {
+            return Paths.get(options.output());
+        }
+        String name = options.ndjson() ? OUTPUT_NAME + ".ndjson" : options.format().fileName(OUTPUT_NAME);
+        return Paths.get(options.gzip() ? name + ".gz" : name);
+    }
+
+    /**
+     * Returns the structural diff file of a git run: {@code project_diff.json}, or next to the output file given on
+     * the command line, named after it, as {@code out/pr-42_diff.json} for {@code out/pr-42.json}. Runs writing to
+     * different outputs thus keep their diffs apart.
+     */
+    static Path diffFile(IntrospectorOptions options) {
+        return options.output() == null ? Paths.get(DIFF_FILE) : besideOutput(options, "_diff.json");
+    }
+
+    /**
+     * Returns the directory of the module shards of a reactor run: {@code project_analysis_modules}, or next to the
+     * output file given on the command line, named after it, as {@code out/x_modules} for {@code out/x.json}. Runs
+     * writing to different outputs thus keep their shards and reactor index apart.
+     */
+    static Path modulesDirectory(IntrospectorOptions options) {
+        return options.output() == null ? Paths.get(MODULES_DIRECTORY) : besideOutput(options, "_modules");
+    }
 
-                ObjectNode classNode = mapper.createObjectNode();
-                classNode.put("name", clazz.getNameAsString());
-                classNode.put("package", cu.getPackageDeclaration().map(NodeWithName::getNameAsString).orElse(""));
-                classNode.put("type", clazz.isInterface() ? "interface" : "class");
-                String modifiers = clazz.getModifiers().toString().replace("[", "").replace("]", "");
-                classNode.put("modifiers", modifiers);
-
-                ArrayNode fieldsArray = mapper.createArrayNode();
-                clazz.getFields().forEach(field -> {
-                    ObjectNode fieldNode = mapper.createObjectNode();
-                    fieldNode.put("name", field.getVariable(0).getNameAsString());
-                    fieldNode.put("type", field.getVariable(0).getTypeAsString());
-                    fieldsArray.add(fieldNode);
-                });
-                classNode.set("fields", fieldsArray);
-
-                ArrayNode methodsArray = mapper.createArrayNode();
-                clazz.getMethods().forEach(method -> {
-                    ObjectNode methodNode = mapper.createObjectNode();
-                    methodNode.put("name", method.getNameAsString());
-
-                    ArrayNode paramsArray = mapper.createArrayNode();
-                    method.getParameters().forEach(param -> {
-                        ObjectNode paramNode = mapper.createObjectNode();
-                        paramNode.put("name", param.getNameAsString());
-                        paramNode.put("type", param.getTypeAsString());
-                        paramsArray.add(paramNode);
-                    });
-                    methodNode.set("parameters", paramsArray);
-
-                    // Calculate lines of code
-                    int linesOfCode = calculateLinesOfCode(method);
-                    methodNode.put("linesOfCode", linesOfCode);
-
-                    methodsArray.add(methodNode);
-                });
-                classNode.set("methods", methodsArray);
-
-                classesArray.add(classNode);
-
-                // Add relations
-                clazz.getExtendedTypes().forEach(extendedType -> {
-                    ObjectNode relationNode = mapper.createObjectNode();
-                    relationNode.put("source", clazz.getNameAsString());
-                    relationNode.put("target", extendedType.getNameAsString());
-                    relationNode.put("type", "extends");
-                    relationsArray.add(relationNode);
-                });
-
-                clazz.getImplementedTypes().forEach(implementedType -> {
-                    ObjectNode relationNode = mapper.createObjectNode();
-                    relationNode.put("source", clazz.getNameAsString());
-                    relationNode.put("target", implementedType.getNameAsString());
-                    relationNode.put("type", "implements");
-                    relationsArray.add(relationNode);
-                });
-
-                clazz.getMethods().forEach(method -> method.getParameters().forEach(param -> {
-                    ObjectNode relationNode = mapper.createObjectNode();
-                    relationNode.put("source", clazz.getNameAsString());
-                    relationNode.put("target", param.getTypeAsString());
-                    relationNode.put("type", "uses");
-                    relationsArray.add(relationNode);
-                }));
-            });
-        }
-
-        ObjectNode root = mapper.createObjectNode();
-        root.set("classes", classesArray);
-        root.set("relations", relationsArray);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(new File("project_analysis.json"), root);
-    }
-
-    private static int calculateLinesOfCode(MethodDeclaration method) {
-        return method.getEnd().map(end -> end.line).orElse(0) - method.getBegin().map(begin -> begin.line).orElse(0) + 1;
-    }
-
-    private static List<CompilationUnit> parseJavaFiles(String projectPath) {
-        List<CompilationUnit> compilationUnits = new ArrayList<>();
-        JavaParser javaParser = new JavaParser();
-        try (Stream<Path> paths = Files.walk(Paths.get(projectPath))) {
-            paths.filter(Files::isRegularFile)
-                 .filter(path -> path.toString().endsWith(".java"))
-                 .forEach(path -> {
-                     try {
-                         javaParser.parse(path).getResult().ifPresent(compilationUnits::add);
-                     } catch (IOException e) {
-                         logger.error("Error parsing file: {}", path, e);
-                     }
-                 });
+    /**
+     * Returns the file next to the output file given on the command line named after it, its extension replaced by
+     * {@code suffix}.
+     */
+    private static Path besideOutput(IntrospectorOptions options, String suffix) {
+        Path output = Paths.get(options.output());
+        String name = output.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        return output.resolveSibling((extension > 0 ? name.substring(0, extension) : name) + suffix);
+    }
+
+    static OutputTarget outputTarget(IntrospectorOptions options) {
+        Path file = OutputTarget.STDOUT.equals(options.output()) ? null : outputFile(options);
+        // the NDJSON stream is meant to be read as it grows, so it is written in place
+        return new OutputTarget(file, options.gzip(), !options.ndjson());
+    }
+
+    private static AnalysisSink createWriter(IntrospectorOptions options, OutputStream out) throws IOException {
+        if (options.ndjson()) {
+            return NdjsonAnalysisWriter.create(out, options.rawRelations());
+        }
+        return JsonAnalysisWriter.create(out, options.format(), options.pretty(), options.rawRelations());
+    }
+
+    private static String loadVersion() {
+        Properties properties = new Properties();
+        try (InputStream in = Introspector.class.getResourceAsStream("/introspector.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot read the Introspector version", e);
+        }
+        return properties.getProperty("version", "unknown");
+    }
+
+    /**
+     * Lists the files of every input, in the order of the inputs. With several inputs, they are opened and listed
+     * concurrently. Closing the returned stream closes the archives read in place.
+     */
+    private static Stream<Path> openInputFiles(IntrospectorOptions options) {
+        List<Stream<Path>> inputs = options.inputs().parallelStream().map(input -> {
+            try {
+                return findInputFiles(options, Paths.get(input));
+            } catch (IOException e) {
+                logger.error("Error walking through project path: {}", input, e);
+                return Stream.<Path>empty();
+            }
+        }).toList();
+        if (inputs.size() == 1) {
+            return inputs.get(0);
+        }
+
+        List<Path> files = new ArrayList<>();
+        try {
+            inputs.forEach(input -> files.addAll(input.toList()));
+        } catch (RuntimeException e) {
+            inputs.forEach(Stream::close);
+            throw e;
+        }
+        return files.stream().onClose(() -> inputs.forEach(Stream::close));
+    }
+
+    /**
+     * Lists the files to analyze under {@code root}, a directory or an archive: sources, or compiled classes in
+     * bytecode mode. The returned stream must be closed.
+     */
+    static Stream<Path> findInputFiles(IntrospectorOptions options, Path root) throws IOException {
+        if (options.bytecode()) {
+            return ClassFiles.find(root, SourceWalker.classFiles(options));
+        }
+        return SourceWalker.javaSources(options).files(root);
+    }
+
+    /**
+     * Lists the input files under {@code start}, a directory of the project rooted at {@code root}, with the rules
+     * of the whole project.
+     */
+    static Stream<Path> findInputFiles(IntrospectorOptions options, Path root, Path start) throws IOException {
+        if (start.equals(root)) {
+            return findInputFiles(options, root);
+        }
+        if (options.bytecode()) {
+            return ClassFiles.find(root, start, SourceWalker.classFiles(options));
+        }
+        return SourceWalker.javaSources(options).walk(root, start).files().stream();
+    }
+
+    static Supplier<FileAnalyzer> analyzers(IntrospectorOptions options) {
+        return analyzers(options, null);
+    }
+
+    /**
+     * @param metrics the metrics the analyzers record their stages into, or {@code null} not to measure them
+     */
+    static Supplier<FileAnalyzer> analyzers(IntrospectorOptions options, PipelineMetrics metrics) {
+        if (options.bytecode()) {
+            return () -> new ClassFileAnalyzer(metrics);
+        }
+        return sourceAnalyzers(options, metrics)::get;
+    }
+
+    /**
+     * Returns the source analyzers of the options, for the modes that analyze sources that are not files, such as
+     * git blobs.
+     *
+     * @param metrics the metrics the analyzers record their stages into, or {@code null} not to measure them
+     */
+    static Supplier<SourceFileAnalyzer> sourceAnalyzers(IntrospectorOptions options, PipelineMetrics metrics) {
+        ParserProfile profile = options.profile();
+        boolean structureOnly = options.structureOnly();
+        FileBudget budget = options.fileBudget();
+        return () -> new SourceFileAnalyzer(profile, structureOnly, metrics, budget);
+    }
+
+    /**
+     * Lists the {@code .java} files of {@code projectPath}, a directory or a source archive, skipping ignored and
+     * build directories. The returned stream must be closed.
+     */
+    static Stream<Path> findJavaFiles(String projectPath) throws IOException {
+        return new SourceWalker(".java", true, List.of(), List.of(), true, ForkJoinPool.getCommonPoolParallelism())
+                .files(Paths.get(projectPath));
+    }
+
+    /**
+     * Parses every {@code .java} file under {@code projectPath}, a directory or a {@code .jar} or {@code .zip}
+     * archive whose entries are parsed in place. With more than one thread the files are parsed
+     * on a dedicated fork-join pool, each worker owning its own {@link JavaParser} (the parser is not thread-safe);
+     * the returned list keeps the walk order, so the result is identical to the sequential mode.
+     */
+    public static List<CompilationUnit> parseJavaFiles(String projectPath, int threads) {
+        return parseJavaFiles(projectPath, threads, ParserProfile.DEFAULT);
+    }
+
+    /**
+     * Parses every {@code .java} file under {@code projectPath} with the given parser profile.
+     */
+    public static List<CompilationUnit> parseJavaFiles(String projectPath, int threads, ParserProfile profile) {
+        try (Stream<Path> paths = findJavaFiles(projectPath)) {
+            // archive entries can only be read while the archive is open, within this block
+            return parseJavaFiles(paths.toList(), threads, profile);
         } catch (IOException e) {
             logger.error("Error walking through project path: {}", projectPath, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<CompilationUnit> parseJavaFiles(List<Path> sourceFiles, int threads, ParserProfile profile) {
+        if (threads <= 1) {
+            List<CompilationUnit> compilationUnits = new ArrayList<>();
+            JavaParser javaParser = profile.newParser();
+            sourceFiles.forEach(path -> parseJavaFile(javaParser, path).ifPresent(compilationUnits::add));
+            return compilationUnits;
+        }
+
+        ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(profile::newParser);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.submit(() -> sourceFiles.parallelStream()
+                                                .map(path -> parseJavaFile(parsers.get(), path))
+                                                .flatMap(Optional::stream)
+                                                .collect(Collectors.toCollection(ArrayList::new)))
+                       .join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Optional<CompilationUnit> parseJavaFile(JavaParser javaParser, Path path) {
+        try {
+            return javaParser.parse(path).getResult();
+        } catch (IOException e) {
+            logger.error("Error parsing file: {}", path, e);
+            return Optional.empty();
         }
-        return compilationUnits;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,287 @@
+package fr.ensibs.laanaoui.introspector;
+
+import fr.ensibs.laanaoui.introspector.output.ArrowAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputFormat;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of the {@link Introspector}.
+ *
+ * @param inputs         the project directories or archives to analyze, a single project in the long-running and
+ *                       reactor modes
+ * @param threads        the number of parser threads, {@code 1} for the sequential mode
+ * @param queueCapacity  the maximum number of files waiting between the parse and emit stages
+ * @param cacheDirectory the directory of the incremental analysis cache, or {@code null} to disable it
+ * @param pretty         whether the JSON output is pretty-printed rather than compact
+ * @param bytecode       whether compiled classes are analyzed instead of sources
+ * @param rawRelations   whether every extracted relation is output, instead of one counted edge per distinct one
+ * @param serverPort     the port of the analysis server on the loopback interface, or {@code null} for a single run
+ * @param watch          whether the project is watched and the output kept up to date as files change
+ * @param debounceMillis how long the tree must stay quiet before changes are applied, in watch mode
+ * @param includes       the globs source files must match one of, relative to the project root
+ * @param excludes       the globs of the files and directories to skip, relative to the project root
+ * @param gitignore      whether the {@code .gitignore} files of the project are honored
+ * @param reactor        whether the project is analyzed as a Maven reactor, module by module
+ * @param profile        the JavaParser configuration of the source analysis
+ * @param structureOnly  whether method bodies are skipped, only declarations being parsed
+ * @param gitRange       the git revisions whose sources are compared, or {@code null} to analyze the files on disk
+ * @param historyDepth   the number of commits whose metrics are followed up to {@code HEAD}, {@code 0} to analyze
+ *                       the files on disk
+ * @param metricsFile    the file the run metrics are written to as JSON, or {@code null} to only log them; not
+ *                       available in the long-running modes
+ * @param slowestFiles   the number of files of the slowest-files report
+ * @param fileBudget     the cost each source file may take
+ * @param format         the encoding of the analysis output
+ * @param ndjson         whether the output is streamed as newline-delimited JSON records, flushed after each file
+ *                       to the output file itself rather than replacing it once complete
+ * @param output         the file the analysis is written to, {@code "-"} for the standard output, or {@code null}
+ *                       for {@code project_analysis} in the working directory
+ * @param gzip           whether the analysis output is gzip-compressed
+ * @param sqliteFile     the SQLite database the analysis is exported to instead of the output file, or
+ *                       {@code null} not to export it
+ * @param arrowDirectory the directory the analysis is exported to as Arrow files instead of the output file, or
+ *                       {@code null} not to export it
+ */
+public record IntrospectorOptions(List<String> inputs, int threads, int queueCapacity, Path cacheDirectory,
+                                  boolean pretty, boolean bytecode, boolean rawRelations, Integer serverPort,
+                                  boolean watch, int debounceMillis, List<String> includes, List<String> excludes,
+                                  boolean gitignore, boolean reactor, ParserProfile profile,
+                                  boolean structureOnly, String gitRange, int historyDepth, Path metricsFile,
+                                  int slowestFiles, FileBudget fileBudget, OutputFormat format, boolean ndjson,
+                                  String output, boolean gzip, Path sqliteFile,
+                                  Path arrowDirectory) {
+
+    public static final String USAGE = """
+            Usage: java Introspector [options] <path-to-java-project | path-to-classes-or-jar>...
+              Sources are read from directories, or in place from .jar and .zip archives such as *-sources.jar.
+              --threads <n>     number of parser threads (default: available processors, 1 = sequential)
+              --queue <n>       files in flight between the parse and emit stages (default: 4 per thread)
+              --cache <dir>     reuse the results of unchanged files from the cache kept in <dir>
+              --pretty          pretty-print the JSON output (default: compact)
+              --format <name>   encoding of the output: "json", or the binary "smile" and "cbor", several times
+                                smaller and faster to load (default: "json")
+              --ndjson          stream one JSON line per class and relation to project_analysis.ndjson, flushed after
+                                each file, so the output can be consumed during the run; the file is written in
+                                place, not atomically like the other outputs
+              --output <file>   write the analysis to <file> instead of project_analysis in the working directory,
+                                "-" for the standard output
+              --gzip            gzip the analysis output, adding .gz to the default file name
+              --sqlite <file>   export the analysis to the SQLite database <file> instead, updating the files that
+                                changed since the previous export
+              --arrow <dir>     export the analysis instead as columnar Arrow files, with dictionary-encoded strings,
+                                to <dir>; the JVM must run with --add-opens=java.base/java.nio=ALL-UNNAMED
+              --bytecode        analyze .class files, from a directory or JAR files, instead of sources
+              --raw-relations   output every extracted relation instead of one edge with a count per distinct one
+              --serve <port>    keep the analysis in memory and answer queries over HTTP on the loopback interface
+                                to the requests carrying the token printed on the standard output; port 0 picks a
+                                free port, which is logged
+              --watch           keep the output up to date as files change, rewriting it in full after each
+                                change
+              --debounce <ms>   how long changes must settle before they are applied in watch mode (default: 50)
+              --include <glob>  only analyze the files matching the glob, relative to the project (repeatable)
+              --exclude <glob>  skip the files and directories matching the glob (repeatable)
+              --no-gitignore    do not honor the .gitignore files of the project
+              --reactor         analyze a Maven multi-module project module by module, skipping unchanged modules
+              --profile <name>  "fast" skips comment attribution and validation (default: "default")
+              --structure-only  skip method bodies, only parse declarations (same output, faster)
+              --git <range>     analyze the committed sources of <range> ("base..target", "base...target" for the
+                                merge base, or a single revision) and write the structural diff to project_diff.json,
+                                or with --output <name>.<ext>, to <name>_diff.json next to it
+              --history <n>     follow the class metrics over the last <n> commits of HEAD, parsing each file
+                                version once, into project_history.ndjson
+              --metrics <file>  write the timings, throughput and allocations of the run to <file> as JSON
+              --slowest <n>     number of files of the slowest-files report (default: 10)
+              --max-file-size <bytes>
+                                budget of a source file: larger ones are not parsed in full
+              --file-timeout <ms>
+                                budget of a parse: longer ones are abandoned
+              --over-budget <action>
+                                "fallback" parses the files over budget structure-only, "skip" leaves them out
+                                (default: "fallback")""";
+
+    public static IntrospectorOptions parse(String[] args) {
+        List<String> inputs = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Integer queueCapacity = null;
+        Path cacheDirectory = null;
+        boolean pretty = false;
+        boolean bytecode = false;
+        boolean rawRelations = false;
+        Integer serverPort = null;
+        boolean watch = false;
+        int debounceMillis = 50;
+        List<String> includes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        boolean gitignore = true;
+        boolean reactor = false;
+        ParserProfile profile = ParserProfile.DEFAULT;
+        boolean structureOnly = false;
+        String gitRange = null;
+        int historyDepth = 0;
+        Path metricsFile = null;
+        int slowestFiles = 10;
+        long maxFileBytes = 0;
+        long fileTimeoutMillis = 0;
+        FileBudget.Action overBudget = FileBudget.Action.FALLBACK;
+        OutputFormat format = OutputFormat.JSON;
+        boolean ndjson = false;
+        String output = null;
+        boolean gzip = false;
+        Path sqliteFile = null;
+        Path arrowDirectory = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads" -> threads = positiveInt(arg, value(args, ++i, arg));
+                case "--queue" -> queueCapacity = positiveInt(arg, value(args, ++i, arg));
+                case "--cache" -> cacheDirectory = Paths.get(value(args, ++i, arg));
+                case "--pretty" -> pretty = true;
+                case "--format" -> format = OutputFormat.of(value(args, ++i, arg));
+                case "--ndjson" -> ndjson = true;
+                case "--output" -> output = value(args, ++i, arg);
+                case "--gzip" -> gzip = true;
+                case "--sqlite" -> sqliteFile = Paths.get(value(args, ++i, arg));
+                case "--arrow" -> arrowDirectory = Paths.get(value(args, ++i, arg));
+                case "--bytecode" -> bytecode = true;
+                case "--raw-relations" -> rawRelations = true;
+                case "--serve" -> serverPort = port(arg, value(args, ++i, arg));
+                case "--watch" -> watch = true;
+                case "--debounce" -> debounceMillis = positiveInt(arg, value(args, ++i, arg));
+                case "--include" -> includes.add(value(args, ++i, arg));
+                case "--exclude" -> excludes.add(value(args, ++i, arg));
+                case "--no-gitignore" -> gitignore = false;
+                case "--reactor" -> reactor = true;
+                case "--profile" -> profile = ParserProfile.of(value(args, ++i, arg));
+                case "--structure-only" -> structureOnly = true;
+                case "--git" -> gitRange = value(args, ++i, arg);
+                case "--history" -> historyDepth = positiveInt(arg, value(args, ++i, arg));
+                case "--metrics" -> metricsFile = Paths.get(value(args, ++i, arg));
+                case "--slowest" -> slowestFiles = positiveInt(arg, value(args, ++i, arg));
+                case "--max-file-size" -> maxFileBytes = positiveInt(arg, value(args, ++i, arg));
+                case "--file-timeout" -> fileTimeoutMillis = positiveInt(arg, value(args, ++i, arg));
+                case "--over-budget" -> overBudget = FileBudget.Action.of(value(args, ++i, arg));
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    inputs.add(arg);
+                }
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("Missing project path");
+        }
+        if (inputs.size() > 1 && (reactor || watch || serverPort != null || gitRange != null
+                || historyDepth > 0)) {
+            throw new IllegalArgumentException(
+                    "--reactor, --watch, --serve, --git and --history take a single project path");
+        }
+        if (reactor && (bytecode || watch || serverPort != null)) {
+            throw new IllegalArgumentException("--reactor cannot be combined with --bytecode, --watch or --serve");
+        }
+        if (gitRange != null && (bytecode || watch || serverPort != null || reactor)) {
+            throw new IllegalArgumentException(
+                    "--git cannot be combined with --bytecode, --watch, --serve or --reactor");
+        }
+        if (format != OutputFormat.JSON && (watch || serverPort != null || historyDepth > 0)) {
+            throw new IllegalArgumentException("--format cannot be combined with --watch, --serve or --history");
+        }
+        if (ndjson && (pretty || format != OutputFormat.JSON || watch || serverPort != null || reactor
+                || gitRange != null || historyDepth > 0)) {
+            throw new IllegalArgumentException("--ndjson cannot be combined with --pretty, --format, --watch, --serve, "
+                                                       + "--reactor, --git or --history");
+        }
+        if (output != null && serverPort != null) {
+            throw new IllegalArgumentException("--output cannot be combined with --serve");
+        }
+        if (metricsFile != null && (watch || serverPort != null)) {
+            // a long-running mode has no end of run to report at
+            throw new IllegalArgumentException("--metrics cannot be combined with --watch or --serve");
+        }
+        if ((gzip || OutputTarget.STDOUT.equals(output)) && (watch || serverPort != null || reactor
+                || gitRange != null || historyDepth > 0)) {
+            throw new IllegalArgumentException("--gzip and --output - cannot be combined with --watch, --serve, "
+                                                       + "--reactor, --git or --history");
+        }
+        if (sqliteFile != null && arrowDirectory != null) {
+            throw new IllegalArgumentException("--sqlite cannot be combined with --arrow");
+        }
+        if ((sqliteFile != null || arrowDirectory != null) && (pretty || format != OutputFormat.JSON || ndjson
+                || output != null || gzip || rawRelations || watch || serverPort != null || reactor || gitRange != null
+                || historyDepth > 0)) {
+            throw new IllegalArgumentException("--sqlite and --arrow cannot be combined with --pretty, --format, "
+                                                       + "--ndjson, --output, --gzip, --raw-relations, --watch, "
+                                                       + "--serve, --reactor, --git or --history");
+        }
+        if (arrowDirectory != null && !ArrowAnalysisWriter.isSupported()) {
+            throw new IllegalArgumentException("--arrow requires the JVM option " + ArrowAnalysisWriter.JVM_OPTION);
+        }
+        if (historyDepth > 0 && (bytecode || watch || serverPort != null || reactor || gitRange != null)) {
+            throw new IllegalArgumentException(
+                    "--history cannot be combined with --bytecode, --watch, --serve, --reactor or --git");
+        }
+        return new IntrospectorOptions(List.copyOf(inputs), threads,
+                                       queueCapacity != null ? queueCapacity : 4 * threads, cacheDirectory, pretty,
+                                       bytecode, rawRelations, serverPort, watch, debounceMillis,
+                                       List.copyOf(includes), List.copyOf(excludes), gitignore, reactor, profile,
+                                       structureOnly, gitRange, historyDepth, metricsFile, slowestFiles,
+                                       new FileBudget(maxFileBytes, fileTimeoutMillis, overBudget), format,
+                                       ndjson, output, gzip, sqliteFile, arrowDirectory);
+    }
+
+    /**
+     * Returns the first input, the project of the modes that analyze a single one.
+     */
+    public String projectPath() {
+        return inputs.get(0);
+    }
+
+    /**
+     * Describes the options the extracted facts depend on. Cached results are only reused under the same settings.
+     */
+    public String extractionSettings() {
+        if (bytecode) {
+            return "extractor=" + Introspector.EXTRACTOR_VERSION + ";input=bytecode";
+        }
+        return "extractor=" + Introspector.EXTRACTOR_VERSION + ";input=source;profile=" + profile
+                + ";structureOnly=" + structureOnly + (fileBudget.isUnlimited() ? "" : ";" + fileBudget);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int port(String option, String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 0 || result > 65535) {
+                throw new IllegalArgumentException(option + " must be a port between 0 and 65535: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number: " + value);
+        }
+    }
+
+    private static int positiveInt(String option, String value) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number: " + value);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+
+import java.util.Locale;
+
+/**
+ * How much work JavaParser does beyond what the extraction reads.
+ */
+public enum ParserProfile {
+
+    /**
+     * The JavaParser defaults: comments are attributed to nodes, tokens are kept and the tree is validated.
+     */
+    DEFAULT,
+
+    /**
+     * Only builds the nodes and their ranges. Comments are not attributed, the original line separator is not
+     * detected and the tree is not validated, so code that {@code javac} would reject may still be analyzed.
+     * Modifiers are printed without the comments that precede them, as no comment is attached to them. Tokens are
+     * kept, as JavaParser needs them for the node ranges the lines of code are computed from.
+     */
+    FAST;
+
+    public ParserConfiguration configuration() {
+        ParserConfiguration configuration = new ParserConfiguration();
+        if (this == FAST) {
+            configuration.setAttributeComments(false)
+                         .setLexicalPreservationEnabled(false)
+                         .setDetectOriginalLineSeparator(false)
+                         .setLanguageLevel(ParserConfiguration.LanguageLevel.RAW);
+        }
+        return configuration;
+    }
+
+    public JavaParser newParser() {
+        return new JavaParser(configuration());
+    }
+
+    /**
+     * Returns the profile with the given name, case-insensitively.
+     */
+    public static ParserProfile of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown parser profile: " + name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,365 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ensibs.laanaoui.introspector.cache.AnalysisCache;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import fr.ensibs.laanaoui.introspector.output.AnalysisSink;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisReader;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+import fr.ensibs.laanaoui.introspector.reactor.MavenModule;
+import fr.ensibs.laanaoui.introspector.reactor.MavenReactor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Analyzes a Maven reactor module by module.
+ * <p>
+ * The modules are read from the POM files by {@link MavenReactor} and analyzed concurrently, each through its own
+ * {@link AnalysisPipeline}; the threads are shared out between the modules running at the same time. Every module
+ * gets its own result shard, a document in the usual format holding only the classes of its source roots. A module
+ * whose files all have the size and modification time recorded by the previous run keeps its shard without being
+ * analyzed again.
+ * <p>
+ * The merged view is then written from the shards, in reactor order: it holds every class and relation, followed by
+ * the list of modules and the {@code moduleRelations} between them, the relations whose source class is declared in
+ * one module and whose target type in another, counted per pair of modules.
+ * <p>
+ * The pipelines of the modules share the {@link PipelineMetrics} of the run, which also count the listing of the
+ * module sources as the walk and the merge as the serialization. The files of the reused modules are not counted.
+ */
+public final class ReactorAnalysis {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactorAnalysis.class);
+
+    static final String INDEX_FILE = "reactor-index.json";
+
+    private final IntrospectorOptions options;
+    private final AnalysisCache cache;
+    private final PipelineMetrics metrics;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param cache   the per-file result cache, or {@code null} to analyze every file of the changed modules
+     * @param metrics the metrics the run is recorded into
+     */
+    public ReactorAnalysis(IntrospectorOptions options, AnalysisCache cache, PipelineMetrics metrics) {
+        this.options = options;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Analyzes the reactor rooted at {@code root}, writing the module shards into {@code shardDirectory} and the
+     * merged view to {@code output}.
+     */
+    public Summary run(Path root, Path output, Path shardDirectory) throws IOException {
+        long start = System.nanoTime();
+        Path projectRoot = root.toAbsolutePath().normalize();
+        List<MavenModule> modules = MavenReactor.read(projectRoot);
+        Map<MavenModule, Path> shards = shardFiles(modules, shardDirectory);
+        Files.createDirectories(shardDirectory);
+        Map<String, String> previous = readIndex(shardDirectory.resolve(INDEX_FILE));
+
+        int parallelModules = Math.max(1, Math.min(options.threads(), modules.size()));
+        int moduleThreads = Math.max(1, options.threads() / parallelModules);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelModules,
+                                                                AnalysisPipeline.daemonThreads("introspector-module-"));
+        List<ModuleResult> results = new ArrayList<>();
+        try {
+            List<Future<ModuleResult>> futures = new ArrayList<>();
+            for (MavenModule module : modules) {
+                Path shard = shards.get(module);
+                futures.add(executor.submit(() -> analyze(projectRoot, module, shard, previous, moduleThreads)));
+            }
+            for (Future<ModuleResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, String> index = new LinkedHashMap<>();
+        for (ModuleResult result : results) {
+            index.put(shards.get(result.module()).getFileName().toString(), result.fingerprint());
+        }
+        try (OutputTarget.Output target = new OutputTarget(shardDirectory.resolve(INDEX_FILE), false).open()) {
+            mapper.writeValue(target.stream(), index);
+            target.commit();
+        }
+        long mergeStart = PipelineMetrics.now();
+        long mergeAllocated = PipelineMetrics.allocatedBytes();
+        try (OutputTarget.Output target = new OutputTarget(output, false).open()) {
+            merge(projectRoot, results, shards, target.stream());
+            target.commit();
+        }
+        metrics.record(Stage.SERIALIZE, mergeStart, mergeAllocated);
+
+        int reused = (int) results.stream().filter(ModuleResult::reused).count();
+        return new Summary(results.size(), results.size() - reused, reused, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private ModuleResult analyze(Path projectRoot, MavenModule module, Path shard, Map<String, String> previous,
+                                 int threads) throws IOException {
+        long walkStart = PipelineMetrics.now();
+        long walkAllocated = PipelineMetrics.allocatedBytes();
+        List<Path> files = sourceFiles(projectRoot, module);
+        metrics.record(Stage.WALK, walkStart, walkAllocated);
+        String fingerprint = fingerprint(projectRoot, files);
+        if (fingerprint.equals(previous.get(shard.getFileName().toString())) && Files.isRegularFile(shard)) {
+            if (cache != null) {
+                files.forEach(cache::retain);
+            }
+            logger.debug("Module {} is unchanged, reusing {}", module.name(), shard);
+            return new ModuleResult(module, files.size(), true, fingerprint);
+        }
+
+        AnalysisPipeline pipeline = new AnalysisPipeline(threads, options.queueCapacity(),
+                                                         Introspector.analyzers(options, metrics), cache, metrics);
+        try (OutputTarget.Output target = new OutputTarget(shard, false).open()) {
+            try (AnalysisSink writer = JsonAnalysisWriter.create(target.stream(), options.format(), options.pretty(),
+                                                                 options.rawRelations())) {
+                pipeline.run(files.stream(), writer);
+                writer.finish();
+            }
+            target.commit();
+        }
+        logger.debug("Analyzed module {}: {} files", module.name(), files.size());
+        return new ModuleResult(module, files.size(), false, fingerprint);
+    }
+
+    private List<Path> sourceFiles(Path projectRoot, MavenModule module) throws IOException {
+        SourceWalker walker = SourceWalker.javaSources(options);
+        Set<Path> files = new LinkedHashSet<>();
+        for (Path sourceRoot : module.sourceRoots()) {
+            if (Files.isDirectory(sourceRoot)) {
+                // roots outside of the project tree are walked on their own, without the project ignore rules
+                SourceWalker.Listing listing = sourceRoot.startsWith(projectRoot)
+                        ? walker.walk(projectRoot, sourceRoot) : walker.walk(sourceRoot);
+                files.addAll(listing.files());
+            }
+        }
+        return List.copyOf(files);
+    }
+
+    /**
+     * Digests the settings of the run and the path, size and modification time of every file of a module.
+     */
+    private String fingerprint(Path projectRoot, List<Path> files) throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, Introspector.VERSION);
+        update(digest, options.extractionSettings() + ";raw=" + options.rawRelations() + ";pretty=" + options.pretty()
+                + ";format=" + options.format());
+        for (Path file : files) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            update(digest, projectRoot.relativize(file) + ":" + attributes.size() + ":"
+                    + attributes.lastModifiedTime().toMillis());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void merge(Path projectRoot, List<ModuleResult> results, Map<MavenModule, Path> shards,
+                       OutputStream output) throws IOException {
+        JsonAnalysisReader reader = new JsonAnalysisReader(options.format());
+        try (JsonAnalysisWriter writer = JsonAnalysisWriter.create(output, options.format(),
+                                                                   options.pretty(), options.rawRelations())) {
+            ModuleGraph graph = new ModuleGraph(writer);
+            for (ModuleResult result : results) {
+                graph.module = result.module().name();
+                reader.read(shards.get(result.module()).toFile(), graph);
+            }
+            writer.finish(generator -> {
+                writeModules(generator, projectRoot, results);
+                graph.write(generator);
+            });
+        }
+    }
+
+    private static void writeModules(JsonGenerator generator, Path projectRoot, List<ModuleResult> results)
+            throws IOException {
+        generator.writeArrayFieldStart("modules");
+        for (ModuleResult result : results) {
+            generator.writeStartObject();
+            generator.writeStringField("name", result.module().name());
+            generator.writeStringField("path", relative(projectRoot, result.module().directory()));
+            generator.writeArrayFieldStart("sourceRoots");
+            for (Path sourceRoot : result.module().sourceRoots()) {
+                generator.writeString(relative(projectRoot, sourceRoot));
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("files", result.files());
+            generator.writeBooleanField("reused", result.reused());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static String relative(Path projectRoot, Path path) {
+        return projectRoot.relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * Names the shard of every module after it, numbering the modules sharing a name.
+     */
+    private Map<MavenModule, Path> shardFiles(List<MavenModule> modules, Path shardDirectory) {
+        Map<MavenModule, Path> shards = new HashMap<>();
+        Set<String> names = new LinkedHashSet<>();
+        for (MavenModule module : modules) {
+            String name = module.name();
+            for (int i = 2; !names.add(name); i++) {
+                name = module.name() + "-" + i;
+            }
+            shards.put(module, shardDirectory.resolve(options.format().fileName(name)));
+        }
+        return shards;
+    }
+
+    private Map<String, String> readIndex(Path file) {
+        if (Files.isRegularFile(file)) {
+            try {
+                return mapper.readValue(file.toFile(), new TypeReference<Map<String, String>>() {
+                });
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable reactor index {}", file, e);
+            }
+        }
+        return Map.of();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The outcome of a reactor analysis.
+     *
+     * @param modules  the number of modules
+     * @param analyzed the number of modules analyzed again
+     * @param reused   the number of unchanged modules whose shard was kept
+     * @param millis   the duration of the analysis, merged view included
+     */
+    public record Summary(int modules, int analyzed, int reused, long millis) {
+    }
+
+    private record ModuleResult(MavenModule module, int files, boolean reused, String fingerprint) {
+    }
+
+    /**
+     * Forwards the shards to the merged view, recording which module declares each class and the relation targets
+     * of each module, to count the relations between modules once every class is known.
+     */
+    private static final class ModuleGraph implements AnalysisSink {
+
+        private final AnalysisSink delegate;
+        private final Map<String, List<String>> declaringModules = new HashMap<>();
+        private final Map<String, Map<String, Integer>> targets = new LinkedHashMap<>();
+        String module;
+
+        ModuleGraph(AnalysisSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(FileAnalysis analysis) throws IOException {
+            for (ClassInfo clazz : analysis.classes()) {
+                List<String> modules = declaringModules.computeIfAbsent(clazz.name(), name -> new ArrayList<>(1));
+                if (!modules.contains(module)) {
+                    modules.add(module);
+                }
+            }
+            Map<String, Integer> moduleTargets = targets.computeIfAbsent(module, name -> new LinkedHashMap<>());
+            for (Relation relation : analysis.relations()) {
+                moduleTargets.merge(typeName(relation.target()), 1, Integer::sum);
+            }
+            delegate.accept(analysis);
+        }
+
+        @Override
+        public void finish() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeArrayFieldStart("moduleRelations");
+            for (Map.Entry<String, Map<String, Integer>> source : targets.entrySet()) {
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                source.getValue().forEach((target, count) -> {
+                    List<String> modules = declaringModules.getOrDefault(target, List.of());
+                    // a name declared in several modules is only resolved when the source module declares it
+                    if (modules.size() == 1 && !modules.get(0).equals(source.getKey())) {
+                        counts.merge(modules.get(0), count, Integer::sum);
+                    }
+                });
+                for (Map.Entry<String, Integer> target : counts.entrySet()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("source", source.getKey());
+                    generator.writeStringField("target", target.getKey());
+                    generator.writeNumberField("count", target.getValue());
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndArray();
+        }
+
+        /**
+         * Returns the simple name of the class a relation target refers to: {@code Order} for {@code Order[]},
+         * {@code List} for {@code List<Order>} and {@code Entry} for {@code Map.Entry}.
+         */
+        private static String typeName(String target) {
+            int end = 0;
+            while (end < target.length()
+                    && (Character.isJavaIdentifierPart(target.charAt(end)) || target.charAt(end) == '.')) {
+                end++;
+            }
+            String name = target.substring(0, end);
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+    }
+}
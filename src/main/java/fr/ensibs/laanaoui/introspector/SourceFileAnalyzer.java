@@ -0,0 +1,211 @@
+package fr.ensibs.laanaoui.introspector;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Analyzes a {@code .java} file with JavaParser.
+ * <p>
+ * In structure-only mode the method bodies are blanked by {@link BodyStripper} before parsing, so no statement is
+ * built: the extracted facts only depend on the declarations and their line ranges, which are left as they were.
+ * <p>
+ * With {@link PipelineMetrics}, the read, parse and extract stages of every file are measured, along with the cost
+ * of each file and the size of its syntax tree. A {@link FileBudget} bounds the size and parse time of each file,
+ * the files over budget being parsed again structure-only or skipped.
+ */
+public final class SourceFileAnalyzer implements FileAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceFileAnalyzer.class);
+
+    private final JavaParser javaParser;
+    private final boolean structureOnly;
+    private final PipelineMetrics metrics;
+    private final FileBudget budget;
+    private boolean lastOverBudget;
+
+    public SourceFileAnalyzer() {
+        this(ParserProfile.DEFAULT, false);
+    }
+
+    public SourceFileAnalyzer(ParserProfile profile, boolean structureOnly) {
+        this(profile, structureOnly, null, FileBudget.UNLIMITED);
+    }
+
+    /**
+     * @param metrics the metrics the stages are recorded into, or {@code null} not to measure them
+     * @param budget  the cost each file may take
+     */
+    public SourceFileAnalyzer(ParserProfile profile, boolean structureOnly, PipelineMetrics metrics,
+                              FileBudget budget) {
+        this.javaParser = profile.newParser();
+        this.structureOnly = structureOnly;
+        this.metrics = metrics;
+        this.budget = budget;
+    }
+
+    @Override
+    public FileAnalysis analyze(Path path) throws IOException {
+        lastOverBudget = false;
+        if (metrics == null && budget.isUnlimited()) {
+            if (structureOnly) {
+                return analyze(ClassFiles.source(path), Files.readAllBytes(path));
+            }
+            return extract(ClassFiles.source(path), javaParser.parse(path));
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        byte[] content = Files.readAllBytes(path);
+        if (metrics != null) {
+            metrics.record(Stage.READ, start, allocated);
+            metrics.addBytesRead(content.length);
+        }
+        return analyze(ClassFiles.source(path), content);
+    }
+
+    @Override
+    public FileAnalysis analyze(Path path, byte[] content) {
+        return analyze(ClassFiles.source(path), content);
+    }
+
+    /**
+     * Analyzes a source that is not read from a file, such as a git blob, decoded with the configured encoding.
+     *
+     * @param source the name of the source, reported as the source of the analysis
+     */
+    public FileAnalysis analyze(String source, byte[] content) {
+        lastOverBudget = false;
+        if (metrics == null && budget.isUnlimited()) {
+            return extract(source, javaParser.parse(decode(content, structureOnly)));
+        }
+
+        boolean stripped = structureOnly;
+        String overBudget = null;
+        if (budget.exceedsSize(content.length)) {
+            overBudget = "size";
+            if (stripped || budget.action() == FileBudget.Action.SKIP) {
+                return skip(source, overBudget);
+            }
+            stripped = true;
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        ParseResult<CompilationUnit> result = parse(content, stripped);
+        if (result == null && !stripped && budget.action() == FileBudget.Action.FALLBACK) {
+            overBudget = "time";
+            stripped = true;
+            result = parse(content, true);
+        }
+        long parseNanos = PipelineMetrics.now() - start;
+        if (metrics != null) {
+            metrics.record(Stage.PARSE, start, allocated);
+        }
+        if (result == null) {
+            return skip(source, "time");
+        }
+        if (overBudget != null) {
+            lastOverBudget = true;
+            logger.warn("{} is over its {} budget, analyzed structure-only", source, overBudget);
+            if (metrics != null) {
+                metrics.overBudget(source, overBudget, "fallback");
+            }
+        }
+        if (metrics == null) {
+            return extract(source, result);
+        }
+
+        start = PipelineMetrics.now();
+        allocated = PipelineMetrics.allocatedBytes();
+        ClassExtractor.Extraction extraction = result.getResult()
+                                                     .map(cu -> ClassExtractor.extractCounting(source, cu))
+                                                     .orElseGet(() -> new ClassExtractor.Extraction(
+                                                             FileAnalysis.empty(source), 0));
+        long extractNanos = PipelineMetrics.now() - start;
+        metrics.record(Stage.EXTRACT, start, allocated);
+        metrics.fileCost(source, content.length, extraction.nodes(), parseNanos, extractNanos);
+        return extraction.analysis();
+    }
+
+    /**
+     * Parses the source, or returns {@code null} if the parse runs over the time budget.
+     */
+    private ParseResult<CompilationUnit> parse(byte[] content, boolean stripped) {
+        String code = decode(content, stripped);
+        if (budget.maxMillis() == 0) {
+            return javaParser.parse(code);
+        }
+        DeadlineReader reader = new DeadlineReader(code, PipelineMetrics.now() + budget.maxMillis() * 1_000_000);
+        ParseResult<CompilationUnit> result = javaParser.parse(ParseStart.COMPILATION_UNIT, Providers.provider(reader));
+        return reader.expired ? null : result;
+    }
+
+    @Override
+    public boolean lastOverBudget() {
+        return lastOverBudget;
+    }
+
+    private FileAnalysis skip(String source, String reason) {
+        lastOverBudget = true;
+        logger.warn("{} is over its {} budget, skipped", source, reason);
+        if (metrics != null) {
+            metrics.overBudget(source, reason, "skipped");
+        }
+        return FileAnalysis.empty(source);
+    }
+
+    private String decode(byte[] content, boolean stripped) {
+        String code = new String(content, javaParser.getParserConfiguration().getCharacterEncoding());
+        return stripped ? BodyStripper.strip(code) : code;
+    }
+
+    private static FileAnalysis extract(String source, ParseResult<CompilationUnit> result) {
+        return result.getResult()
+                     .map(cu -> ClassExtractor.extract(source, cu))
+                     .orElseGet(() -> FileAnalysis.empty(source));
+    }
+
+    /**
+     * Feeds a source to the parser until a deadline. Past it, reading fails with an unchecked exception, which the
+     * parser reports as a problem, as the checked ones are taken for the end of the input.
+     */
+    private static final class DeadlineReader extends Reader {
+
+        private final StringReader source;
+        private final long deadline;
+        boolean expired;
+
+        DeadlineReader(String source, long deadline) {
+            this.source = new StringReader(source);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (PipelineMetrics.now() - deadline > 0) {
+                expired = true;
+                throw new IllegalStateException("Parse time budget exceeded");
+            }
+            return source.read(buffer, offset, length);
+        }
+
+        @Override
+        public void close() {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package fr.ensibs.laanaoui.introspector;
+
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Lists the source files of a project, pruning the directories that cannot hold sources before descending into
+ * them.
+ * <p>
+ * Skipped directories are version control and tool directories ({@code .git}, {@code .mvn}, {@code node_modules}...),
+ * the {@code target} and {@code build} output directories next to a {@code pom.xml} or Gradle build file, the
+ * directories ignored by the {@code .gitignore} files of the tree, and the directories matching an exclude glob.
+ * Files must have one of the requested extensions, match one of the include globs if there are any, and match no
+ * exclude glob nor {@code .gitignore} rule. Globs are matched against the path relative to the root, e.g.
+ * {@code src/main/java/**} or {@code **}{@code /generated/**}.
+ * <p>
+ * Symbolic links to files are followed, while symbolic links to directories are not descended into, so a link cannot
+ * make the walk leave the tree or loop.
+ * <p>
+ * Each directory is listed by its own fork-join task, so large trees are walked concurrently. Entries are visited
+ * in name order, which makes the result independent of the file system listing order.
+ */
+public final class SourceWalker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceWalker.class);
+
+    private static final Set<String> TOOL_DIRECTORIES =
+            Set.of(".git", ".hg", ".svn", ".idea", ".vscode", ".mvn", ".gradle", "node_modules");
+    private static final Set<String> OUTPUT_DIRECTORIES = Set.of("target", "build", "out");
+    private static final Set<String> BUILD_FILES = Set.of("pom.xml", "build.gradle", "build.gradle.kts");
+
+    /**
+     * Orders paths as a walk lists them: by the name of their first element, then of the next one, and so on.
+     */
+    public static final Comparator<Path> WALK_ORDER = SourceWalker::compareInWalkOrder;
+
+    private final List<String> extensions;
+    private final boolean skipOutputDirectories;
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean gitignore;
+    private final int threads;
+
+    /**
+     * @param extensions            the extensions of the listed files, e.g. {@code .java}
+     * @param skipOutputDirectories whether the build output directories are skipped
+     * @param includes              the globs files must match one of, all files when empty
+     * @param excludes              the globs of the files and directories to leave out
+     * @param gitignore             whether {@code .gitignore} files are honored
+     * @param threads               the parallelism of the walk
+     */
+    public SourceWalker(List<String> extensions, boolean skipOutputDirectories, List<String> includes,
+                        List<String> excludes, boolean gitignore, int threads) {
+        this.extensions = List.copyOf(extensions);
+        this.skipOutputDirectories = skipOutputDirectories;
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.gitignore = gitignore;
+        this.threads = threads;
+    }
+
+    public SourceWalker(String extension, boolean skipOutputDirectories, List<String> includes, List<String> excludes,
+                        boolean gitignore, int threads) {
+        this(List.of(extension), skipOutputDirectories, includes, excludes, gitignore, threads);
+    }
+
+    private static int compareInWalkOrder(Path first, Path second) {
+        int count = Math.min(first.getNameCount(), second.getNameCount());
+        for (int i = 0; i < count; i++) {
+            int order = first.getName(i).toString().compareTo(second.getName(i).toString());
+            if (order != 0) {
+                return order;
+            }
+        }
+        return Integer.compare(first.getNameCount(), second.getNameCount());
+    }
+
+    public static SourceWalker javaSources(IntrospectorOptions options) {
+        return new SourceWalker(".java", true, options.includes(), options.excludes(), options.gitignore(),
+                                options.threads());
+    }
+
+    /**
+     * Returns a walker of the {@code .class} files of a tree, which are found in the output directories, and of the
+     * JAR and ZIP archives holding more of them.
+     */
+    public static SourceWalker classFiles(IntrospectorOptions options) {
+        return new SourceWalker(List.of(".class", ".jar", ".zip"), false, options.includes(), options.excludes(),
+                                options.gitignore(), options.threads());
+    }
+
+    /**
+     * Returns the walker of the inputs of the analysis: sources, or compiled classes in bytecode mode.
+     */
+    public static SourceWalker inputs(IntrospectorOptions options) {
+        return options.bytecode() ? classFiles(options) : javaSources(options);
+    }
+
+    /**
+     * Lists the files of {@code input}, a directory or a {@code .jar} or {@code .zip} archive. Archives are read in
+     * place through the zip file system, from their root. The returned stream must be closed, which also closes the
+     * archive, so its paths cannot be read afterwards.
+     */
+    public Stream<Path> files(Path input) throws IOException {
+        if (!ClassFiles.isArchive(input)) {
+            return walk(input).files().stream();
+        }
+        FileSystem archive = FileSystems.newFileSystem(input);
+        try {
+            return walk(archive.getPath("/")).files().stream().onClose(() -> {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    // nothing was written through the archive, nothing can be lost
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lists the files and the walked directories under {@code root}.
+     */
+    public Listing walk(Path root) throws IOException {
+        return walk(root, root);
+    }
+
+    /**
+     * Lists the files and the walked directories under {@code start}, a directory of the tree rooted at
+     * {@code root}, as they would be listed by a walk of the whole tree.
+     */
+    public Listing walk(Path root, Path start) throws IOException {
+        if (!Files.isDirectory(start) || !start.startsWith(root)) {
+            return new Listing(List.of(), List.of());
+        }
+        // the start directory and the ones above it are pruned as the walk of the whole tree would prune them
+        Rules rules = new Rules(root, root.getFileSystem(), includes, excludes);
+        for (Path directory = root; ; directory = directory.resolve(start.getName(directory.getNameCount()))) {
+            if (!directory.equals(root) && (isSkipped(directory) || rules.ignores(directory, true))) {
+                return new Listing(List.of(), List.of());
+            }
+            if (directory.equals(start)) {
+                break;
+            }
+            if (gitignore) {
+                rules = rules.withGitignore(directory);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new DirectoryTask(start, rules));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns whether {@code file}, in the tree rooted at {@code root}, would be listed by a walk of the tree.
+     */
+    public boolean accepts(Path root, Path file) throws IOException {
+        if (!hasExtension(file) || !file.startsWith(root)) {
+            return false;
+        }
+        Rules rules = new Rules(root, root.getFileSystem(), includes, excludes);
+        Path parent = file.getParent();
+        for (Path directory = root; ; directory = directory.resolve(parent.getName(directory.getNameCount()))) {
+            if (!directory.equals(root) && (isSkipped(directory) || rules.ignores(directory, true))) {
+                return false;
+            }
+            if (gitignore) {
+                rules = rules.withGitignore(directory);
+            }
+            if (directory.equals(parent)) {
+                break;
+            }
+        }
+        return rules.includes(file) && !rules.ignores(file, false);
+    }
+
+    /**
+     * Returns a filter of the files of a tree that is not on the file system, such as a git revision, keeping the
+     * ones a walk of the tree would list. The filtered paths are relative to the root of the tree, with forward
+     * slashes. The filter remembers the rules of the directories it met, so it is meant for a single tree, and it
+     * throws {@link UncheckedIOException} when the tree cannot be read.
+     */
+    public Predicate<String> filter(Tree tree) {
+        Path root = Paths.get("/");
+        Map<Path, Optional<Rules>> directories = new HashMap<>();
+        return path -> {
+            Path file = root.resolve(path);
+            if (!hasExtension(file)) {
+                return false;
+            }
+            try {
+                Rules rules = rules(tree, root, file.getParent(), directories);
+                return rules != null && rules.includes(file) && !rules.ignores(file, false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Returns the rules in effect in a directory of a tree, or {@code null} when the directory is pruned.
+     */
+    private Rules rules(Tree tree, Path root, Path directory, Map<Path, Optional<Rules>> directories)
+            throws IOException {
+        Optional<Rules> rules = directories.get(directory);
+        if (rules == null) {
+            Rules parent = directory.equals(root) ? new Rules(root, root.getFileSystem(), includes, excludes)
+                    : rules(tree, root, directory.getParent(), directories);
+            if (parent == null || !directory.equals(root)
+                    && (isSkipped(tree, root, directory) || parent.ignores(directory, true))) {
+                rules = Optional.empty();
+            } else {
+                String file = relative(root, directory.resolve(".gitignore"));
+                boolean ignoreFile = gitignore && tree.isFile(file);
+                rules = Optional.of(ignoreFile ? parent.withGitignore(directory, tree.readLines(file), file) : parent);
+            }
+            directories.put(directory, rules);
+        }
+        return rules.orElse(null);
+    }
+
+    private boolean isSkipped(Tree tree, Path root, Path directory) throws IOException {
+        String name = directory.getFileName().toString();
+        if (TOOL_DIRECTORIES.contains(name)) {
+            return true;
+        }
+        if (skipOutputDirectories && OUTPUT_DIRECTORIES.contains(name)) {
+            for (String buildFile : BUILD_FILES) {
+                if (tree.isFile(relative(root, directory.resolveSibling(buildFile)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String relative(Path root, Path path) {
+        StringJoiner joined = new StringJoiner("/");
+        root.relativize(path).forEach(name -> joined.add(name.toString()));
+        return joined.toString();
+    }
+
+    private boolean hasExtension(Path file) {
+        String name = file.toString();
+        return extensions.stream().anyMatch(name::endsWith);
+    }
+
+    private boolean isSkipped(Path directory) {
+        String name = directory.getFileName().toString();
+        return TOOL_DIRECTORIES.contains(name)
+                || skipOutputDirectories && OUTPUT_DIRECTORIES.contains(name)
+                && containsBuildFile(directory.getParent());
+    }
+
+    private static boolean containsBuildFile(Path directory) {
+        return BUILD_FILES.stream().anyMatch(name -> Files.isRegularFile(directory.resolve(name)));
+    }
+
+    /**
+     * The files of a tree that is not on the file system, as paths relative to its root with forward slashes.
+     */
+    public interface Tree {
+
+        boolean isFile(String path) throws IOException;
+
+        /**
+         * Returns the lines of a text file of the tree.
+         */
+        List<String> readLines(String path) throws IOException;
+    }
+
+    /**
+     * The result of a walk, in walk order.
+     *
+     * @param files       the matching files
+     * @param directories the directories that were walked, the start directory first
+     */
+    public record Listing(List<Path> files, List<Path> directories) {
+    }
+
+    private final class DirectoryTask extends RecursiveTask<Listing> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final transient Rules rules;
+
+        DirectoryTask(Path directory, Rules rules) {
+            this.directory = directory;
+            this.rules = rules;
+        }
+
+        @Override
+        protected Listing compute() {
+            try {
+                Rules local = gitignore ? rules.withGitignore(directory) : rules;
+                List<Path> entries = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    stream.forEach(entries::add);
+                }
+                entries.sort(Comparator.comparing(path -> path.getFileName().toString()));
+                boolean buildDirectory = entries.stream()
+                                                .anyMatch(path -> BUILD_FILES.contains(path.getFileName().toString()));
+
+                List<Object> slots = new ArrayList<>(entries.size());
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                                                                          LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        String name = entry.getFileName().toString();
+                        if (!TOOL_DIRECTORIES.contains(name)
+                                && !(skipOutputDirectories && buildDirectory && OUTPUT_DIRECTORIES.contains(name))
+                                && !local.ignores(entry, true)) {
+                            slots.add(new DirectoryTask(entry, local).fork());
+                        }
+                    } else if (hasExtension(entry) && isFile(entry, attributes)
+                            && local.includes(entry) && !local.ignores(entry, false)) {
+                        slots.add(entry);
+                    }
+                }
+
+                List<Path> files = new ArrayList<>();
+                List<Path> directories = new ArrayList<>();
+                directories.add(directory);
+                for (Object slot : slots) {
+                    if (slot instanceof Path file) {
+                        files.add(file);
+                    } else {
+                        Listing sub = ((DirectoryTask) slot).join();
+                        files.addAll(sub.files());
+                        directories.addAll(sub.directories());
+                    }
+                }
+                return new Listing(files, directories);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns whether an entry is a file, or a symbolic link to one.
+         */
+        private static boolean isFile(Path entry, BasicFileAttributes attributes) {
+            return attributes.isRegularFile() || attributes.isSymbolicLink() && Files.isRegularFile(entry);
+        }
+    }
+
+    /**
+     * The include and exclude globs, and the {@code .gitignore} rules in effect in a directory.
+     */
+    private static final class Rules {
+
+        private final Path root;
+        private final FileSystem fileSystem;
+        private final List<PathMatcher> includes;
+        private final List<PathMatcher> excludes;
+        private final List<IgnoreRule> ignoreRules;
+
+        Rules(Path root, FileSystem fileSystem, List<String> includes, List<String> excludes) {
+            this(root, fileSystem, matchers(fileSystem, includes), matchers(fileSystem, excludes), List.of());
+        }
+
+        private Rules(Path root, FileSystem fileSystem, List<PathMatcher> includes, List<PathMatcher> excludes,
+                      List<IgnoreRule> ignoreRules) {
+            this.root = root;
+            this.fileSystem = fileSystem;
+            this.includes = includes;
+            this.excludes = excludes;
+            this.ignoreRules = ignoreRules;
+        }
+
+        Rules withGitignore(Path directory) throws IOException {
+            Path file = directory.resolve(".gitignore");
+            if (!Files.isRegularFile(file)) {
+                return this;
+            }
+            return withGitignore(directory, Files.readAllLines(file), file);
+        }
+
+        /**
+         * Adds the rules of the {@code .gitignore} file of {@code directory}, read as {@code lines}.
+         *
+         * @param file the name of the file in the warnings about its invalid lines
+         */
+        Rules withGitignore(Path directory, List<String> lines, Object file) {
+            List<IgnoreRule> rules = new ArrayList<>(ignoreRules);
+            for (String line : lines) {
+                try {
+                    IgnoreRule rule = IgnoreRule.parse(directory, line);
+                    if (rule != null) {
+                        rules.add(rule);
+                    }
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring the invalid pattern \"{}\" of {}: {}", line, file, e.getMessage());
+                }
+            }
+            return new Rules(root, fileSystem, includes, excludes, rules);
+        }
+
+        boolean includes(Path file) {
+            Path relative = root.relativize(file);
+            return includes.isEmpty() || includes.stream().anyMatch(matcher -> matcher.matches(relative));
+        }
+
+        boolean ignores(Path path, boolean directory) {
+            Path relative = root.relativize(path);
+            if (excludes.stream().anyMatch(matcher -> matcher.matches(relative))) {
+                return true;
+            }
+            // the last matching rule wins, so that "!" rules can re-include what an earlier rule ignored
+            boolean ignored = false;
+            for (IgnoreRule rule : ignoreRules) {
+                if (rule.matches(path, directory)) {
+                    ignored = !rule.negated();
+                }
+            }
+            return ignored;
+        }
+
+        private static List<PathMatcher> matchers(FileSystem fileSystem, List<String> globs) {
+            return globs.stream().map(glob -> fileSystem.getPathMatcher("glob:" + glob)).toList();
+        }
+    }
+
+    /**
+     * A {@code .gitignore} pattern, relative to the directory of its file. Patterns without an inner slash match
+     * at any depth, patterns ending with a slash only match directories and patterns starting with {@code !}
+     * re-include what earlier patterns ignored.
+     * <p>
+     * The pattern is translated to a regular expression with the wildcards of git: {@code *} and {@code ?} do not
+     * match a slash, {@code [...]} is a character class, negated by {@code !} or {@code ^}, a leading
+     * {@code **}{@code /}, an inner {@code /**}{@code /} and a trailing {@code /**} match any number of directories,
+     * and a backslash quotes the next character. Any other character matches itself.
+     */
+    private record IgnoreRule(Path base, Pattern pattern, boolean directoryOnly, boolean negated) {
+
+        /**
+         * Parses a line of a {@code .gitignore} file, returning {@code null} for blank lines and comments.
+         *
+         * @throws IllegalArgumentException if the pattern is invalid, such as an unclosed character class
+         */
+        static IgnoreRule parse(Path base, String line) {
+            String pattern = stripTrailingSpaces(line);
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+            String regex = (anchored ? "" : "(?:.*/)?") + toRegex(pattern);
+            return new IgnoreRule(base, Pattern.compile(regex), directoryOnly, negated);
+        }
+
+        boolean matches(Path path, boolean directory) {
+            if (!(directory || !directoryOnly) || !path.startsWith(base)) {
+                return false;
+            }
+            Path relative = base.relativize(path);
+            StringJoiner joined = new StringJoiner("/");
+            relative.forEach(name -> joined.add(name.toString()));
+            return pattern.matcher(joined.toString()).matches();
+        }
+
+        /**
+         * Removes the trailing spaces of a line, unless they are quoted with a backslash.
+         */
+        private static String stripTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            int length = pattern.length();
+            for (int i = 0; i < length; i++) {
+                char c = pattern.charAt(i);
+                switch (c) {
+                    case '*' -> {
+                        boolean doubled = i + 1 < length && pattern.charAt(i + 1) == '*';
+                        boolean segmentStart = i == 0 || pattern.charAt(i - 1) == '/';
+                        if (doubled && segmentStart && i + 2 == length) {
+                            regex.append(".*");
+                            i++;
+                        } else if (doubled && segmentStart && pattern.charAt(i + 2) == '/') {
+                            regex.append("(?:.*/)?");
+                            i += 2;
+                        } else {
+                            while (i + 1 < length && pattern.charAt(i + 1) == '*') {
+                                i++;
+                            }
+                            regex.append("[^/]*");
+                        }
+                    }
+                    case '?' -> regex.append("[^/]");
+                    case '[' -> i = appendClass(pattern, i, regex);
+                    case '\\' -> {
+                        if (++i == length) {
+                            throw new IllegalArgumentException("trailing backslash");
+                        }
+                        appendLiteral(pattern.charAt(i), regex);
+                    }
+                    default -> appendLiteral(c, regex);
+                }
+            }
+            return regex.toString();
+        }
+
+        /**
+         * Appends the character class starting at {@code start}, returning the index of its closing bracket.
+         */
+        private static int appendClass(String pattern, int start, StringBuilder regex) {
+            int i = start + 1;
+            StringBuilder set = new StringBuilder("[");
+            if (i < pattern.length() && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^')) {
+                set.append('^');
+                i++;
+            }
+            boolean first = true;
+            for (; i < pattern.length(); i++, first = false) {
+                char c = pattern.charAt(i);
+                if (c == ']' && !first) {
+                    regex.append(set).append(']');
+                    return i;
+                }
+                if (c == '\\' && i + 1 < pattern.length()) {
+                    c = pattern.charAt(++i);
+                } else if (c == '-' && !first && i + 1 < pattern.length() && pattern.charAt(i + 1) != ']') {
+                    set.append('-');
+                    continue;
+                }
+                set.append(Character.isLetterOrDigit(c) ? String.valueOf(c) : "\\" + c);
+            }
+            throw new IllegalArgumentException("unclosed character class");
+        }
+
+        private static void appendLiteral(char c, StringBuilder regex) {
+            regex.append(Character.isLetterOrDigit(c) ? String.valueOf(c) : "\\" + c);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package fr.ensibs.laanaoui.introspector.bytecode;
+
+import fr.ensibs.laanaoui.introspector.FileAnalyzer;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Analyzes a compiled {@code .class} file with ASM and produces the same model as the source analysis.
+ * <p>
+ * The bytecode only approximates what is written in the source:
+ * <ul>
+ *     <li>types are rendered from the generic signature when there is one, with simple class names;</li>
+ *     <li>parameter names come from the {@code MethodParameters} or {@code LocalVariableTable} attribute and fall
+ *     back to {@code arg0, arg1...} for classes compiled without {@code -parameters} nor {@code -g};</li>
+ *     <li>the lines of code of a method are derived from its {@code LineNumberTable}, counting the declaration
+ *     line before the first statement and, for methods returning a value, the closing brace after the last one.
+ *     Abstract methods count one line;</li>
+ *     <li>modifiers are listed in the canonical order, without the ones implied for interfaces;</li>
+ *     <li>every variable of a multi-variable field declaration is reported, and compiler-generated members,
+ *     anonymous classes, enums, records and annotations are left out, as in the source analysis.</li>
+ * </ul>
+ */
+public final class ClassFileAnalyzer implements FileAnalyzer {
+
+    private final PipelineMetrics metrics;
+
+    public ClassFileAnalyzer() {
+        this(null);
+    }
+
+    /**
+     * @param metrics the metrics the read and parse stages are recorded into, or {@code null} not to measure them;
+     *                the classes are extracted while the file is visited, as part of the parse stage
+     */
+    public ClassFileAnalyzer(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public FileAnalysis analyze(Path path) throws IOException {
+        if (metrics == null) {
+            return analyze(path, Files.readAllBytes(path));
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        byte[] content = Files.readAllBytes(path);
+        metrics.record(Stage.READ, start, allocated);
+        metrics.addBytesRead(content.length);
+        return analyze(path, content);
+    }
+
+    @Override
+    public FileAnalysis analyze(Path path, byte[] content) {
+        ClassCollector collector = new ClassCollector();
+        if (metrics == null) {
+            new ClassReader(content).accept(collector, ClassReader.SKIP_FRAMES);
+            return collector.result(ClassFiles.source(path));
+        }
+        long start = PipelineMetrics.now();
+        long allocated = PipelineMetrics.allocatedBytes();
+        new ClassReader(content).accept(collector, ClassReader.SKIP_FRAMES);
+        FileAnalysis analysis = collector.result(ClassFiles.source(path));
+        metrics.record(Stage.PARSE, start, allocated);
+        return analysis;
+    }
+
+    private static final class ClassCollector extends ClassVisitor {
+
+        private String internalName;
+        private String simpleName;
+        private int access;
+        private boolean anonymous;
+        private String superName;
+        private String[] interfaces;
+        private final List<FieldInfo> fields = new ArrayList<>();
+        private final List<MethodInfo> methods = new ArrayList<>();
+
+        ClassCollector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            this.internalName = name;
+            this.simpleName = SourceTypeWriter.simpleName(name);
+            this.access = access;
+            this.superName = superName;
+            this.interfaces = interfaces;
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            if (name.equals(internalName)) {
+                // the access flags of a nested class are only complete in its InnerClasses entry
+                this.access = access;
+                this.anonymous = innerName == null;
+                if (innerName != null) {
+                    this.simpleName = innerName;
+                }
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            if ((access & Opcodes.ACC_SYNTHETIC) == 0) {
+                fields.add(new FieldInfo(name, SourceTypeWriter.render(signature != null ? signature : descriptor)));
+            }
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+            if (name.startsWith("<") || (access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0) {
+                return null;
+            }
+            return new MethodCollector(access, name, descriptor, signature, methods);
+        }
+
+        FileAnalysis result(String source) {
+            if (!isReported()) {
+                return FileAnalysis.empty(source);
+            }
+
+            int lastSlash = internalName.lastIndexOf('/');
+            String packageName = lastSlash < 0 ? "" : internalName.substring(0, lastSlash).replace('/', '.');
+            boolean isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+            ClassInfo clazz = new ClassInfo(simpleName, packageName, isInterface ? "interface" : "class",
+                                            modifiers(isInterface), fields, methods);
+
+            List<Relation> relations = new ArrayList<>();
+            if (isInterface) {
+                for (String extended : interfaces) {
+                    relations.add(new Relation(simpleName, SourceTypeWriter.simpleName(extended), "extends"));
+                }
+            } else {
+                if (superName != null && !"java/lang/Object".equals(superName)) {
+                    relations.add(new Relation(simpleName, SourceTypeWriter.simpleName(superName), "extends"));
+                }
+                for (String implemented : interfaces) {
+                    relations.add(new Relation(simpleName, SourceTypeWriter.simpleName(implemented), "implements"));
+                }
+            }
+            for (MethodInfo method : methods) {
+                for (ParameterInfo param : method.parameters()) {
+                    relations.add(new Relation(simpleName, param.type(), "uses"));
+                }
+            }
+            return new FileAnalysis(source, List.of(clazz), relations);
+        }
+
+        private boolean isReported() {
+            int excluded = Opcodes.ACC_SYNTHETIC | Opcodes.ACC_ENUM | Opcodes.ACC_ANNOTATION | Opcodes.ACC_MODULE;
+            return internalName != null
+                    && (access & excluded) == 0
+                    && !anonymous
+                    && !"java/lang/Record".equals(superName)
+                    && !simpleName.equals("package-info")
+                    && !simpleName.equals("MavenWrapperDownloader");
+        }
+
+        private String modifiers(boolean isInterface) {
+            StringJoiner modifiers = new StringJoiner(", ");
+            if ((access & Opcodes.ACC_PUBLIC) != 0) {
+                modifiers.add("public ");
+            }
+            if ((access & Opcodes.ACC_PROTECTED) != 0) {
+                modifiers.add("protected ");
+            }
+            if ((access & Opcodes.ACC_PRIVATE) != 0) {
+                modifiers.add("private ");
+            }
+            if (!isInterface && (access & Opcodes.ACC_ABSTRACT) != 0) {
+                modifiers.add("abstract ");
+            }
+            if (!isInterface && (access & Opcodes.ACC_STATIC) != 0) {
+                modifiers.add("static ");
+            }
+            if ((access & Opcodes.ACC_FINAL) != 0) {
+                modifiers.add("final ");
+            }
+            return modifiers.toString();
+        }
+    }
+
+    private static final class MethodCollector extends MethodVisitor {
+
+        private final int access;
+        private final String name;
+        private final Type[] argumentTypes;
+        private final boolean returnsValue;
+        private final List<String> parameterTypes;
+        private final List<String> declaredNames = new ArrayList<>();
+        private final Map<Integer, String> localNames = new HashMap<>();
+        private final List<MethodInfo> methods;
+        private int firstLine = Integer.MAX_VALUE;
+        private int lastLine = Integer.MIN_VALUE;
+
+        MethodCollector(int access, String name, String descriptor, String signature, List<MethodInfo> methods) {
+            super(Opcodes.ASM9);
+            this.access = access;
+            this.name = name;
+            this.argumentTypes = Type.getArgumentTypes(descriptor);
+            this.returnsValue = Type.getReturnType(descriptor) != Type.VOID_TYPE;
+            this.parameterTypes = parameterTypes(argumentTypes, signature);
+            this.methods = methods;
+        }
+
+        @Override
+        public void visitParameter(String name, int access) {
+            declaredNames.add(name);
+        }
+
+        @Override
+        public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end,
+                                       int index) {
+            localNames.putIfAbsent(index, name);
+        }
+
+        @Override
+        public void visitLineNumber(int line, Label start) {
+            firstLine = Math.min(firstLine, line);
+            lastLine = Math.max(lastLine, line);
+        }
+
+        @Override
+        public void visitEnd() {
+            List<ParameterInfo> parameters = new ArrayList<>(argumentTypes.length);
+            int slot = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+            for (int i = 0; i < argumentTypes.length; i++) {
+                String type = parameterTypes.get(i);
+                if (i == argumentTypes.length - 1 && (access & Opcodes.ACC_VARARGS) != 0 && type.endsWith("[]")) {
+                    type = type.substring(0, type.length() - 2); // written as "T..." in the source
+                }
+                parameters.add(new ParameterInfo(parameterName(i, slot), type));
+                slot += argumentTypes[i].getSize();
+            }
+            methods.add(new MethodInfo(name, parameters, linesOfCode()));
+        }
+
+        private String parameterName(int index, int slot) {
+            if (index < declaredNames.size() && declaredNames.get(index) != null) {
+                return declaredNames.get(index);
+            }
+            return localNames.getOrDefault(slot, "arg" + index);
+        }
+
+        private int linesOfCode() {
+            if (firstLine > lastLine) {
+                return 1;
+            }
+            // the declaration line precedes the first statement; without a value to return, the implicit return
+            // is attributed to the line of the closing brace
+            return lastLine + (returnsValue ? 1 : 0) - firstLine + 2;
+        }
+
+        private static List<String> parameterTypes(Type[] argumentTypes, String signature) {
+            List<String> types = new ArrayList<>(argumentTypes.length);
+            if (signature != null) {
+                List<StringBuilder> rendered = new ArrayList<>();
+                new SignatureReader(signature).accept(new SignatureVisitor(Opcodes.ASM9) {
+                    @Override
+                    public SignatureVisitor visitParameterType() {
+                        StringBuilder out = new StringBuilder();
+                        rendered.add(out);
+                        return SourceTypeWriter.into(out);
+                    }
+                });
+                if (rendered.size() == argumentTypes.length) {
+                    rendered.forEach(out -> types.add(out.toString()));
+                    return types;
+                }
+            }
+            for (Type type : argumentTypes) {
+                types.add(SourceTypeWriter.render(type.getDescriptor()));
+            }
+            return types;
+        }
+    }
+}
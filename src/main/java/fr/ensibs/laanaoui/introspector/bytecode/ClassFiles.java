@@ -0,0 +1,126 @@
+package fr.ensibs.laanaoui.introspector.bytecode;
+
+import fr.ensibs.laanaoui.introspector.SourceWalker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Finds the compiled classes to analyze, in a directory such as {@code target/classes} or in JAR files.
+ */
+public final class ClassFiles {
+
+    /**
+     * Orders the names returned by {@link #source(Path)} as a walk lists the files, the entries of an archive
+     * following its path in the order of their own paths.
+     */
+    public static final Comparator<String> SOURCE_ORDER =
+            Comparator.comparing(ClassFiles::file, SourceWalker.WALK_ORDER)
+                      .thenComparing(ClassFiles::entry, SourceWalker.WALK_ORDER);
+
+    private ClassFiles() {
+    }
+
+    /**
+     * Lists the {@code .class} files of {@code input}: a JAR, or a directory whose JARs are searched as well. The
+     * class files and JARs of a directory are the ones {@code walker} lists, so the include, exclude and
+     * {@code .gitignore} rules apply to them; the entries of a JAR are all listed. JAR entries are read lazily, in
+     * place through the zip file system. The returned stream must be closed, which also closes the JAR file
+     * systems, so its paths cannot be used afterwards.
+     *
+     * @param walker lists the class files and the archives of a directory
+     */
+    public static Stream<Path> find(Path input, SourceWalker walker) throws IOException {
+        return find(input, input, walker);
+    }
+
+    /**
+     * Lists the {@code .class} files under {@code start}, a directory of the tree rooted at {@code root}, as
+     * {@link #find(Path, SourceWalker)} lists them for the whole tree.
+     */
+    public static Stream<Path> find(Path root, Path start, SourceWalker walker) throws IOException {
+        List<FileSystem> archives = new CopyOnWriteArrayList<>();
+        Stream<Path> classFiles = isArchive(start)
+                ? inArchive(start, archives)
+                : walker.walk(root, start).files().stream()
+                        .flatMap(path -> isArchive(path) ? inArchive(path, archives) : Stream.of(path));
+        return classFiles.filter(ClassFiles::isClassFile)
+                         .onClose(() -> archives.forEach(ClassFiles::closeQuietly));
+    }
+
+    /**
+     * Returns the name a file is analyzed under: its path, or for an entry of an archive, the path of the archive
+     * followed by {@code !} and the entry, as in {@code /libs/app.jar!/com/acme/App.class}, since the entries of
+     * different archives share their paths.
+     */
+    public static String source(Path path) {
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            return path.toString();
+        }
+        String uri = path.toUri().getRawSchemeSpecificPart(); // file:///libs/app.jar!/com/acme/App.class
+        return Path.of(URI.create(uri.substring(0, uri.indexOf("!/")))) + "!" + path.toAbsolutePath();
+    }
+
+    /**
+     * Returns the file {@code source}, a name returned by {@link #source(Path)}, was read from: the file itself, or
+     * the archive holding the entry.
+     */
+    public static Path file(String source) {
+        int entry = source.indexOf('!');
+        return Path.of(entry < 0 ? source : source.substring(0, entry));
+    }
+
+    private static Path entry(String source) {
+        int entry = source.indexOf('!');
+        return Path.of(entry < 0 ? "" : source.substring(entry + 1));
+    }
+
+    public static boolean isArchive(Path path) {
+        return Files.isRegularFile(path) && hasArchiveName(path);
+    }
+
+    /**
+     * Returns whether {@code path} is named as an archive, whether or not it exists.
+     */
+    public static boolean hasArchiveName(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private static Stream<Path> inArchive(Path archive, List<FileSystem> archives) {
+        try {
+            FileSystem fileSystem = FileSystems.newFileSystem(archive);
+            archives.add(fileSystem);
+            Path root = fileSystem.getPath("/");
+            // multi-release variants under META-INF/versions would duplicate the base classes
+            return Files.walk(root)
+                        .filter(path -> !path.startsWith(root.resolve("META-INF")))
+                        .sorted(SourceWalker.WALK_ORDER);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open archive " + archive, e);
+        }
+    }
+
+    private static boolean isClassFile(Path path) {
+        String name = path.getFileName() == null ? "" : path.getFileName().toString();
+        return name.endsWith(".class") && !name.equals("module-info.class") && !name.equals("package-info.class");
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing was written through the archive, nothing can be lost
+        }
+    }
+}
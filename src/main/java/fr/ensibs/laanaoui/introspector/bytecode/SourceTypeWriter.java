@@ -0,0 +1,119 @@
+package fr.ensibs.laanaoui.introspector.bytecode;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * Renders a type descriptor or generic type signature the way it is usually written in the source: simple class
+ * names, type arguments and array brackets, e.g. {@code Ljava/util/List<Lcom/acme/Order;>;} becomes
+ * {@code List<Order>}. Type arguments are separated by a bare comma, as in {@code Map<String,Order>}, the way
+ * JavaParser prints the types of the source mode, so the relations of both modes name the same types.
+ */
+final class SourceTypeWriter extends SignatureVisitor {
+
+    private final StringBuilder out;
+    private int arrayDimensions;
+    private int typeStart;
+    private boolean typeArguments;
+
+    private SourceTypeWriter(StringBuilder out) {
+        super(Opcodes.ASM9);
+        this.out = out;
+    }
+
+    static String render(String descriptorOrSignature) {
+        SourceTypeWriter writer = new SourceTypeWriter(new StringBuilder());
+        new SignatureReader(descriptorOrSignature).acceptType(writer);
+        return writer.out.toString();
+    }
+
+    /**
+     * Returns a visitor rendering the next visited type into {@code out}, for the parameters of method signatures.
+     */
+    static SourceTypeWriter into(StringBuilder out) {
+        return new SourceTypeWriter(out);
+    }
+
+    static String simpleName(String internalName) {
+        int start = Math.max(internalName.lastIndexOf('/'), internalName.lastIndexOf('$')) + 1;
+        return internalName.substring(start);
+    }
+
+    @Override
+    public void visitBaseType(char descriptor) {
+        out.append(switch (descriptor) {
+            case 'Z' -> "boolean";
+            case 'B' -> "byte";
+            case 'C' -> "char";
+            case 'S' -> "short";
+            case 'I' -> "int";
+            case 'J' -> "long";
+            case 'F' -> "float";
+            case 'D' -> "double";
+            default -> "void";
+        });
+        endType();
+    }
+
+    @Override
+    public void visitTypeVariable(String name) {
+        out.append(name);
+        endType();
+    }
+
+    @Override
+    public SignatureVisitor visitArrayType() {
+        arrayDimensions++;
+        return this;
+    }
+
+    @Override
+    public void visitClassType(String name) {
+        typeStart = out.length();
+        typeArguments = false;
+        out.append(simpleName(name));
+    }
+
+    @Override
+    public void visitInnerClassType(String name) {
+        out.setLength(typeStart);
+        typeArguments = false;
+        out.append(simpleName(name));
+    }
+
+    @Override
+    public void visitTypeArgument() {
+        openTypeArgument();
+        out.append('?');
+    }
+
+    @Override
+    public SignatureVisitor visitTypeArgument(char wildcard) {
+        openTypeArgument();
+        if (wildcard == EXTENDS) {
+            out.append("? extends ");
+        } else if (wildcard == SUPER) {
+            out.append("? super ");
+        }
+        return new SourceTypeWriter(out);
+    }
+
+    @Override
+    public void visitEnd() {
+        if (typeArguments) {
+            out.append('>');
+        }
+        endType();
+    }
+
+    private void openTypeArgument() {
+        out.append(typeArguments ? "," : "<");
+        typeArguments = true;
+    }
+
+    private void endType() {
+        out.append("[]".repeat(arrayDimensions));
+        arrayDimensions = 0;
+    }
+}
@@ -0,0 +1,178 @@
+package fr.ensibs.laanaoui.introspector.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of per-file analysis results, so that unchanged files are not parsed again.
+ * <p>
+ * An entry is reused when the file still has the recorded size and modification time. When only the modification
+ * time changed (a fresh checkout, a {@code touch}), the SHA-256 of the content is compared before giving up. The
+ * whole cache is discarded when it was written by another Introspector version or with other extraction settings,
+ * which hold the version of the extractors.
+ * Only the entries looked up or stored during the current run are saved back, so deleted files do not accumulate.
+ * <p>
+ * Lookups and stores may be called concurrently from the pipeline workers.
+ */
+public final class AnalysisCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCache.class);
+
+    static final int FORMAT = 1;
+    static final String FILE_NAME = "analysis-cache.json";
+
+    private final Path file;
+    private final String version;
+    private final String settings;
+    private final Map<String, Entry> previous;
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper;
+
+    private AnalysisCache(Path file, String version, String settings, Map<String, Entry> previous,
+                          ObjectMapper mapper) {
+        this.file = file;
+        this.version = version;
+        this.settings = settings;
+        this.previous = previous;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Opens the cache stored in {@code directory}. A missing, unreadable or stale cache yields an empty one.
+     *
+     * @param version  the version of the Introspector
+     * @param settings a description of the extraction settings the results depend on
+     */
+    public static AnalysisCache open(Path directory, String version, String settings) {
+        ObjectMapper mapper = new ObjectMapper();
+        Path file = directory.resolve(FILE_NAME);
+        Map<String, Entry> entries = Map.of();
+        if (Files.isRegularFile(file)) {
+            try {
+                CacheFile cacheFile = mapper.readValue(file.toFile(), CacheFile.class);
+                if (cacheFile.format() == FORMAT && version.equals(cacheFile.version())
+                        && settings.equals(cacheFile.settings())) {
+                    entries = cacheFile.entries();
+                } else {
+                    logger.info("Discarding analysis cache {} written by another version or with other settings",
+                                file);
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable analysis cache {}", file, e);
+            }
+        }
+        return new AnalysisCache(file, version, settings, entries, mapper);
+    }
+
+    /**
+     * Returns the cached analysis of {@code path} if the file did not change since it was stored.
+     */
+    public Optional<FileAnalysis> lookup(Path path) throws IOException {
+        String key = key(path);
+        Entry entry = previous.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (entry.size() != size) {
+            return Optional.empty();
+        }
+        if (entry.modified() != modified) {
+            if (!entry.hash().equals(hash(path))) {
+                return Optional.empty();
+            }
+            entry = new Entry(size, modified, entry.hash(), entry.analysis());
+        }
+        current.put(key, entry);
+        return Optional.of(entry.analysis());
+    }
+
+    /**
+     * Records the analysis of {@code path}, made from {@code content}, without reading the file again. Nothing is
+     * recorded when the file no longer has the size of the content, having changed since it was read.
+     */
+    public void store(Path path, byte[] content, FileAnalysis analysis) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attributes.size() == content.length) {
+            current.put(key(path), new Entry(content.length, attributes.lastModifiedTime().toMillis(),
+                                             HexFormat.of().formatHex(sha256().digest(content)), analysis));
+        }
+    }
+
+    /**
+     * Keeps the entry of {@code path} for the next run without checking the file, when the caller knows it did not
+     * change and skipped its analysis.
+     */
+    public void retain(Path path) {
+        String key = key(path);
+        Entry entry = previous.get(key);
+        if (entry != null) {
+            current.put(key, entry);
+        }
+    }
+
+    /**
+     * Writes the entries of the current run to disk, replacing the previous cache.
+     */
+    public void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        try {
+            mapper.writeValue(temporary.toFile(), new CacheFile(FORMAT, version, settings, current));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String key(Path path) {
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            return path.toUri().toString(); // an entry of an archive, e.g. jar:file:///app.jar!/com/acme/App.class
+        }
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    static String hash(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    record Entry(long size, long modified, String hash, FileAnalysis analysis) {
+    }
+
+    record CacheFile(int format, String version, String settings, Map<String, Entry> entries) {
+    }
+}
@@ -0,0 +1,125 @@
+package fr.ensibs.laanaoui.introspector.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of analysis results keyed by git blob identifier, the hash of the file content.
+ * <p>
+ * Unlike {@link AnalysisCache}, entries never go stale: a blob identifier always names the same content. Still, like
+ * it, only the entries looked up or stored during the current run are saved back, so the versions of the files that
+ * are no longer analyzed do not accumulate. The whole cache is discarded when it was written by another Introspector
+ * version or with other extraction settings. A cache without a directory only lives in memory.
+ * <p>
+ * Lookups and stores may be called concurrently.
+ */
+public final class BlobCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobCache.class);
+
+    static final int FORMAT = 1;
+    static final String FILE_NAME = "blob-cache.json";
+
+    private final Path file;
+    private final String version;
+    private final String settings;
+    private final Map<String, FileAnalysis> entries;
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile boolean modified;
+
+    private BlobCache(Path file, String version, String settings, Map<String, FileAnalysis> entries) {
+        this.file = file;
+        this.version = version;
+        this.settings = settings;
+        this.entries = new ConcurrentHashMap<>(entries);
+    }
+
+    /**
+     * Opens the cache stored in {@code directory}, or an in-memory cache when {@code directory} is {@code null}. A
+     * missing, unreadable or stale cache yields an empty one.
+     *
+     * @param version  the version of the Introspector
+     * @param settings a description of the extraction settings the results depend on
+     */
+    public static BlobCache open(Path directory, String version, String settings) {
+        if (directory == null) {
+            return new BlobCache(null, version, settings, Map.of());
+        }
+        Path file = directory.resolve(FILE_NAME);
+        Map<String, FileAnalysis> entries = Map.of();
+        if (Files.isRegularFile(file)) {
+            try {
+                CacheFile cacheFile = new ObjectMapper().readValue(file.toFile(), CacheFile.class);
+                if (cacheFile.format() == FORMAT && version.equals(cacheFile.version())
+                        && settings.equals(cacheFile.settings())) {
+                    entries = cacheFile.entries();
+                } else {
+                    logger.info("Discarding blob cache {} written by another version or with other settings", file);
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable blob cache {}", file, e);
+            }
+        }
+        return new BlobCache(file, version, settings, entries);
+    }
+
+    /**
+     * Returns the analysis of the blob, reported with {@code source} as its source.
+     */
+    public Optional<FileAnalysis> lookup(String blobId, String source) {
+        FileAnalysis analysis = entries.get(blobId);
+        if (analysis == null) {
+            return Optional.empty();
+        }
+        used.add(blobId);
+        return Optional.of(new FileAnalysis(source, analysis.classes(), analysis.relations()));
+    }
+
+    public void store(String blobId, FileAnalysis analysis) {
+        entries.put(blobId, analysis);
+        used.add(blobId);
+        modified = true;
+    }
+
+    /**
+     * Returns the number of cached blobs.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the entries of the current run to disk if the cache has a directory, and entries were stored or went
+     * unused.
+     */
+    public void save() throws IOException {
+        if (file == null || !modified && used.size() == entries.size()) {
+            return;
+        }
+        entries.keySet().retainAll(used);
+        Files.createDirectories(file.getParent());
+        Path temporary = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        try {
+            mapper.writeValue(temporary.toFile(), new CacheFile(FORMAT, version, settings, entries));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        modified = false;
+    }
+
+    record CacheFile(int format, String version, String settings, Map<String, FileAnalysis> entries) {
+    }
+}
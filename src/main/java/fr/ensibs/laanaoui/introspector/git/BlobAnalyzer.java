@@ -0,0 +1,135 @@
+package fr.ensibs.laanaoui.introspector.git;
+
+import fr.ensibs.laanaoui.introspector.SourceFileAnalyzer;
+import fr.ensibs.laanaoui.introspector.cache.BlobCache;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics;
+import fr.ensibs.laanaoui.introspector.metrics.PipelineMetrics.Stage;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Analyzes the sources of git revisions, parsing each distinct blob only once.
+ * <p>
+ * Results are kept in a {@link BlobCache} under the blob identifier, so a file version shared by several revisions,
+ * or moved to another path, is never parsed again. The blobs missing from the cache are read and analyzed
+ * concurrently, each worker thread owning its own object reader and analyzer. The analyses over the file budget,
+ * or of blobs that could not be read, are not cached, so the next run parses them again.
+ * <p>
+ * With {@link PipelineMetrics}, the blob reads are measured like the file reads of the pipeline, and every analysis
+ * returned is counted as a file, cached or not.
+ */
+public final class BlobAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobAnalyzer.class);
+
+    private final GitSources sources;
+    private final Supplier<SourceFileAnalyzer> analyzers;
+    private final BlobCache cache;
+    private final int threads;
+    private final PipelineMetrics metrics;
+    private int analyzed;
+
+    /**
+     * @param metrics the metrics of the run, or {@code null} not to measure it
+     */
+    public BlobAnalyzer(GitSources sources, Supplier<SourceFileAnalyzer> analyzers, BlobCache cache, int threads,
+                        PipelineMetrics metrics) {
+        this.sources = sources;
+        this.analyzers = analyzers;
+        this.cache = cache;
+        this.threads = threads;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the analysis of every source, in order.
+     */
+    public List<FileAnalysis> analyze(List<GitSources.SourceBlob> blobs) {
+        Map<ObjectId, String> missing = new LinkedHashMap<>();
+        for (GitSources.SourceBlob blob : blobs) {
+            if (cache.lookup(blob.blob().name(), blob.path()).isEmpty()) {
+                missing.putIfAbsent(blob.blob(), blob.path());
+            }
+        }
+        Map<ObjectId, FileAnalysis> uncached = missing.isEmpty() ? Map.of() : parse(missing);
+
+        List<FileAnalysis> analyses = new ArrayList<>(blobs.size());
+        for (GitSources.SourceBlob blob : blobs) {
+            FileAnalysis analysis = cache.lookup(blob.blob().name(), blob.path()).orElseGet(() -> {
+                FileAnalysis parsed = uncached.get(blob.blob());
+                return parsed == null ? FileAnalysis.empty(blob.path())
+                        : new FileAnalysis(blob.path(), parsed.classes(), parsed.relations());
+            });
+            if (metrics != null) {
+                metrics.fileAnalyzed(analysis, !missing.containsKey(blob.blob()));
+            }
+            analyses.add(analysis);
+        }
+        return analyses;
+    }
+
+    /**
+     * Returns the number of blobs parsed so far.
+     */
+    public int analyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Parses the blobs into the cache, and returns the analyses that could not be cached: those of the blobs over
+     * budget or that could not be read.
+     */
+    private Map<ObjectId, FileAnalysis> parse(Map<ObjectId, String> blobs) {
+        Map<ObjectId, FileAnalysis> uncached = new ConcurrentHashMap<>();
+        Queue<ObjectReader> readers = new ConcurrentLinkedQueue<>();
+        ThreadLocal<ObjectReader> workerReaders = ThreadLocal.withInitial(() -> {
+            ObjectReader reader = sources.newReader();
+            readers.add(reader);
+            return reader;
+        });
+        ThreadLocal<SourceFileAnalyzer> workerAnalyzers = ThreadLocal.withInitial(analyzers);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> blobs.entrySet().parallelStream().forEach(blob -> {
+                try {
+                    long start = PipelineMetrics.now();
+                    long allocated = PipelineMetrics.allocatedBytes();
+                    byte[] content = GitSources.read(workerReaders.get(), blob.getKey());
+                    if (metrics != null) {
+                        metrics.record(Stage.READ, start, allocated);
+                        metrics.addBytesRead(content.length);
+                    }
+                    SourceFileAnalyzer analyzer = workerAnalyzers.get();
+                    FileAnalysis analysis = analyzer.analyze(blob.getValue(), content);
+                    if (analyzer.lastOverBudget()) {
+                        uncached.put(blob.getKey(), analysis);
+                    } else {
+                        cache.store(blob.getKey().name(), analysis);
+                    }
+                } catch (IOException e) {
+                    logger.error("Error reading blob {} of {}", blob.getKey().name(), blob.getValue(), e);
+                    uncached.put(blob.getKey(), FileAnalysis.empty(blob.getValue()));
+                }
+            })).join();
+        } finally {
+            pool.shutdown();
+            readers.forEach(ObjectReader::close);
+        }
+        analyzed += blobs.size();
+        return uncached;
+    }
+}
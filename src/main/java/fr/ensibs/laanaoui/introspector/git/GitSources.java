@@ -0,0 +1,246 @@
+package fr.ensibs.laanaoui.introspector.git;
+
+import fr.ensibs.laanaoui.introspector.SourceWalker;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Reads the Java sources of a project from the object database of its local git repository, without a checkout.
+ * <p>
+ * The project may be a subdirectory of the work tree, in which case only the sources under it are listed. Paths are
+ * relative to the work tree, with forward slashes. The sources of a revision are the ones a {@link SourceWalker}
+ * would list in its tree: tool and build output directories are skipped, the {@code .gitignore} files of the
+ * revision are honored, and the include and exclude globs are matched against the path relative to the project.
+ */
+public final class GitSources implements AutoCloseable {
+
+    private final Repository repository;
+    private final String prefix;
+    private final SourceWalker walker;
+
+    private GitSources(Repository repository, String prefix, SourceWalker walker) {
+        this.repository = repository;
+        this.prefix = prefix;
+        this.walker = walker;
+    }
+
+    /**
+     * Opens the repository holding {@code projectPath}.
+     *
+     * @param walker selects the sources of the tree of a revision
+     */
+    public static GitSources open(Path projectPath, SourceWalker walker) throws IOException {
+        Path project = projectPath.toAbsolutePath().normalize();
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment().findGitDir(project.toFile());
+        if (builder.getGitDir() == null) {
+            throw new IOException("Not in a git repository: " + projectPath);
+        }
+        Repository repository = builder.setMustExist(true).build();
+        try {
+            Path workTree = repository.getWorkTree().toPath().toRealPath();
+            String prefix = workTree.relativize(project.toRealPath()).toString().replace('\\', '/');
+            return new GitSources(repository, prefix, walker);
+        } catch (IOException | RuntimeException e) {
+            repository.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the commit named by {@code revision}: a branch, a tag, an identifier or an expression such as
+     * {@code HEAD~3}.
+     */
+    public RevCommit resolve(String revision) throws IOException {
+        ObjectId id = repository.resolve(revision);
+        if (id == null) {
+            throw new IOException("Unknown revision: " + revision);
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            return walk.parseCommit(id);
+        }
+    }
+
+    /**
+     * Returns the best common ancestor of two commits.
+     */
+    public RevCommit mergeBase(RevCommit first, RevCommit second) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(first));
+            walk.markStart(walk.parseCommit(second));
+            RevCommit base = walk.next();
+            if (base == null) {
+                throw new IOException("No merge base between " + first.name() + " and " + second.name());
+            }
+            return base;
+        }
+    }
+
+    /**
+     * Returns the last {@code count} commits of the first-parent history of {@code revision}, oldest first.
+     */
+    public List<RevCommit> history(String revision, int count) throws IOException {
+        List<RevCommit> commits = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setFirstParent(true);
+            walk.markStart(walk.parseCommit(resolve(revision)));
+            for (RevCommit commit = walk.next(); commit != null && commits.size() < count; commit = walk.next()) {
+                commits.add(commit);
+            }
+        }
+        Collections.reverse(commits);
+        return commits;
+    }
+
+    /**
+     * Lists the sources of {@code commit}, in tree order.
+     */
+    public List<SourceBlob> sources(RevCommit commit) throws IOException {
+        List<SourceBlob> sources = new ArrayList<>();
+        Predicate<String> filter = walker.filter(tree(commit.getTree()));
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.addTree(commit.getTree());
+            walk.setRecursive(true);
+            walk.setFilter(filter());
+            while (walk.next()) {
+                if (isSource(walk, 0, filter)) {
+                    sources.add(new SourceBlob(walk.getPathString(), walk.getObjectId(0)));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return sources;
+    }
+
+    /**
+     * Lists the sources added, modified or deleted from {@code base} to {@code target}, in tree order. A rename is
+     * a deletion and an addition.
+     */
+    public List<Change> changes(RevCommit base, RevCommit target) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        Predicate<String> baseFilter = walker.filter(tree(base.getTree()));
+        Predicate<String> targetFilter = walker.filter(tree(target.getTree()));
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.addTree(base.getTree());
+            walk.addTree(target.getTree());
+            walk.setRecursive(true);
+            walk.setFilter(AndTreeFilter.create(TreeFilter.ANY_DIFF, filter()));
+            while (walk.next()) {
+                ObjectId before = isSource(walk, 0, baseFilter) ? walk.getObjectId(0) : null;
+                ObjectId after = isSource(walk, 1, targetFilter) ? walk.getObjectId(1) : null;
+                if (before != null || after != null) {
+                    changes.add(new Change(walk.getPathString(), before, after));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return changes;
+    }
+
+    /**
+     * Creates a reader of the object database. Readers are not thread-safe and must be closed.
+     */
+    public ObjectReader newReader() {
+        return repository.newObjectReader();
+    }
+
+    public Repository repository() {
+        return repository;
+    }
+
+    /**
+     * Returns the content of a blob.
+     */
+    public static byte[] read(ObjectReader reader, ObjectId blob) throws IOException {
+        return reader.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        repository.close();
+    }
+
+    private TreeFilter filter() {
+        TreeFilter suffix = PathSuffixFilter.create(".java");
+        return prefix.isEmpty() ? suffix : AndTreeFilter.create(PathFilter.create(prefix), suffix);
+    }
+
+    private boolean isSource(TreeWalk walk, int tree, Predicate<String> filter) {
+        FileMode mode = walk.getFileMode(tree);
+        if (mode.getObjectType() != Constants.OBJ_BLOB || mode == FileMode.SYMLINK) {
+            return false;
+        }
+        String path = walk.getPathString();
+        return filter.test(prefix.isEmpty() ? path : path.substring(prefix.length() + 1));
+    }
+
+    /**
+     * Returns the tree of the project in a revision, for the walker.
+     */
+    private SourceWalker.Tree tree(RevTree revisionTree) {
+        return new SourceWalker.Tree() {
+            @Override
+            public boolean isFile(String path) throws IOException {
+                return blob(path) != null;
+            }
+
+            @Override
+            public List<String> readLines(String path) throws IOException {
+                ObjectId blob = blob(path);
+                byte[] content = repository.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+                return new String(content, StandardCharsets.UTF_8).lines().toList();
+            }
+
+            private ObjectId blob(String path) throws IOException {
+                try (TreeWalk walk = TreeWalk.forPath(repository, prefix.isEmpty() ? path : prefix + "/" + path,
+                                                      revisionTree)) {
+                    return walk != null && walk.getFileMode(0).getObjectType() == Constants.OBJ_BLOB
+                            ? walk.getObjectId(0) : null;
+                }
+            }
+        };
+    }
+
+    /**
+     * A source file of a revision.
+     *
+     * @param path the path of the file in the work tree
+     * @param blob the identifier of its content
+     */
+    public record SourceBlob(String path, ObjectId blob) {
+    }
+
+    /**
+     * A source file that differs between two revisions.
+     *
+     * @param path   the path of the file in the work tree
+     * @param before its content in the base revision, {@code null} if it was added
+     * @param after  its content in the target revision, {@code null} if it was deleted
+     */
+    public record Change(String path, ObjectId before, ObjectId after) {
+    }
+}
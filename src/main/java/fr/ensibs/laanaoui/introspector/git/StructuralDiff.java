@@ -0,0 +1,209 @@
+package fr.ensibs.laanaoui.introspector.git;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * The structural difference between two versions of a set of files: the classes added, removed and changed, and the
+ * change of the relation counts.
+ * <p>
+ * Only the files that differ need to be compared, as the others contribute the same facts to both versions. The
+ * facts of all the changed files are pooled on each side, so a class moved from one changed file to another is not
+ * reported. Classes are identified by their qualified name, fields by their name, and methods by their name and
+ * parameter types.
+ */
+public final class StructuralDiff {
+
+    private final List<String> addedClasses = new ArrayList<>();
+    private final List<String> removedClasses = new ArrayList<>();
+    private final List<ClassChange> changedClasses = new ArrayList<>();
+    private final List<RelationDelta> relations = new ArrayList<>();
+
+    private StructuralDiff() {
+    }
+
+    public static StructuralDiff compute(List<FileAnalysis> before, List<FileAnalysis> after) {
+        StructuralDiff diff = new StructuralDiff();
+        Map<String, ClassInfo> oldClasses = classes(before);
+        Map<String, ClassInfo> newClasses = classes(after);
+        for (Map.Entry<String, ClassInfo> entry : newClasses.entrySet()) {
+            ClassInfo old = oldClasses.get(entry.getKey());
+            if (old == null) {
+                diff.addedClasses.add(entry.getKey());
+            } else if (!old.equals(entry.getValue())) {
+                diff.changedClasses.add(ClassChange.of(entry.getKey(), old, entry.getValue()));
+            }
+        }
+        oldClasses.keySet().stream().filter(name -> !newClasses.containsKey(name)).forEach(diff.removedClasses::add);
+
+        Map<Relation, Integer> counts = new LinkedHashMap<>();
+        before.forEach(analysis -> analysis.relations().forEach(relation -> counts.merge(relation, -1, Integer::sum)));
+        after.forEach(analysis -> analysis.relations().forEach(relation -> counts.merge(relation, 1, Integer::sum)));
+        counts.forEach((relation, delta) -> {
+            if (delta != 0) {
+                diff.relations.add(new RelationDelta(relation, delta));
+            }
+        });
+        return diff;
+    }
+
+    public boolean isEmpty() {
+        return addedClasses.isEmpty() && removedClasses.isEmpty() && changedClasses.isEmpty() && relations.isEmpty();
+    }
+
+    /**
+     * Writes the difference as the {@code classes} and {@code relations} fields of the current object.
+     */
+    public void write(JsonGenerator generator) throws IOException {
+        generator.writeObjectFieldStart("classes");
+        writeNames(generator, "added", addedClasses);
+        writeNames(generator, "removed", removedClasses);
+        generator.writeArrayFieldStart("changed");
+        for (ClassChange change : changedClasses) {
+            change.write(generator);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+
+        generator.writeArrayFieldStart("relations");
+        for (RelationDelta delta : relations) {
+            generator.writeStartObject();
+            generator.writeStringField("source", delta.relation().source());
+            generator.writeStringField("target", delta.relation().target());
+            generator.writeStringField("type", delta.relation().type());
+            generator.writeNumberField("delta", delta.delta());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static Map<String, ClassInfo> classes(List<FileAnalysis> analyses) {
+        Map<String, ClassInfo> classes = new LinkedHashMap<>();
+        for (FileAnalysis analysis : analyses) {
+            for (ClassInfo clazz : analysis.classes()) {
+                classes.putIfAbsent(clazz.packageName().isEmpty() ? clazz.name()
+                                            : clazz.packageName() + "." + clazz.name(), clazz);
+            }
+        }
+        return classes;
+    }
+
+    private static void writeNames(JsonGenerator generator, String field, List<String> names) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (String name : names) {
+            generator.writeString(name);
+        }
+        generator.writeEndArray();
+    }
+
+    private record RelationDelta(Relation relation, int delta) {
+    }
+
+    /**
+     * The members added to and removed from a class present in both versions. A method whose length changed is
+     * reported with its old and new lines of code.
+     */
+    private record ClassChange(String name, ClassInfo before, ClassInfo after, List<String> addedFields,
+                               List<String> removedFields, List<String> addedMethods, List<String> removedMethods,
+                               Map<String, int[]> resizedMethods) {
+
+        static ClassChange of(String name, ClassInfo before, ClassInfo after) {
+            Map<String, String> oldFields = fields(before);
+            Map<String, String> newFields = fields(after);
+            Map<String, MethodInfo> oldMethods = methods(before);
+            Map<String, MethodInfo> newMethods = methods(after);
+            Map<String, int[]> resized = new LinkedHashMap<>();
+            newMethods.forEach((signature, method) -> {
+                MethodInfo old = oldMethods.get(signature);
+                if (old != null && old.linesOfCode() != method.linesOfCode()) {
+                    resized.put(signature, new int[]{old.linesOfCode(), method.linesOfCode()});
+                }
+            });
+            return new ClassChange(name, before, after, missing(newFields.keySet(), oldFields),
+                                   missing(oldFields.keySet(), newFields), missing(newMethods.keySet(), oldMethods),
+                                   missing(oldMethods.keySet(), newMethods), resized);
+        }
+
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("name", name);
+            if (!before.type().equals(after.type())) {
+                writeChange(generator, "type", before.type(), after.type());
+            }
+            if (!Objects.equals(before.modifiers(), after.modifiers())) {
+                writeChange(generator, "modifiers", before.modifiers(), after.modifiers());
+            }
+            generator.writeObjectFieldStart("fields");
+            writeNames(generator, "added", addedFields);
+            writeNames(generator, "removed", removedFields);
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("methods");
+            writeNames(generator, "added", addedMethods);
+            writeNames(generator, "removed", removedMethods);
+            generator.writeArrayFieldStart("resized");
+            for (Map.Entry<String, int[]> method : resizedMethods.entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("signature", method.getKey());
+                generator.writeNumberField("from", method.getValue()[0]);
+                generator.writeNumberField("to", method.getValue()[1]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+
+        private static void writeChange(JsonGenerator generator, String field, String from, String to)
+                throws IOException {
+            generator.writeObjectFieldStart(field);
+            generator.writeStringField("from", from);
+            generator.writeStringField("to", to);
+            generator.writeEndObject();
+        }
+
+        /**
+         * Keys the fields by {@code name: type}, so a field whose type changed is removed and added again.
+         */
+        private static Map<String, String> fields(ClassInfo clazz) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (FieldInfo field : clazz.fields()) {
+                fields.putIfAbsent(field.name() + ": " + field.type(), field.name());
+            }
+            return fields;
+        }
+
+        private static Map<String, MethodInfo> methods(ClassInfo clazz) {
+            Map<String, MethodInfo> methods = new LinkedHashMap<>();
+            for (MethodInfo method : clazz.methods()) {
+                String parameters = method.parameters().stream()
+                                          .map(ParameterInfo::type)
+                                          .collect(Collectors.joining(", "));
+                methods.putIfAbsent(method.name() + "(" + parameters + ")", method);
+            }
+            return methods;
+        }
+
+        private static List<String> missing(Iterable<String> keys, Map<String, ?> other) {
+            List<String> missing = new ArrayList<>();
+            for (String key : keys) {
+                if (!other.containsKey(key)) {
+                    missing.add(key);
+                }
+            }
+            return missing;
+        }
+    }
+}
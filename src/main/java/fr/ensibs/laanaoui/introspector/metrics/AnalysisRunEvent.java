@@ -0,0 +1,55 @@
+package fr.ensibs.laanaoui.introspector.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event spanning a whole analysis run, carrying the totals of its {@link PipelineMetrics}.
+ */
+@Name("fr.ensibs.laanaoui.introspector.AnalysisRun")
+@Label("Analysis Run")
+@Category("Introspector")
+@Description("Analysis of a whole project")
+public final class AnalysisRunEvent extends Event {
+
+    @Label("Files")
+    public long files;
+
+    @Label("Cached Files")
+    public long cachedFiles;
+
+    @Label("Classes")
+    public long classes;
+
+    @Label("Relations")
+    public long relations;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytesRead;
+
+    @Label("Walk Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long walkMillis;
+
+    @Label("Read Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long readMillis;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long parseMillis;
+
+    @Label("Extract Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long extractMillis;
+
+    @Label("Serialize Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long serializeMillis;
+}
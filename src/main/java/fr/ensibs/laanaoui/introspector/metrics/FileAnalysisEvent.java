@@ -0,0 +1,30 @@
+package fr.ensibs.laanaoui.introspector.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning the analysis of one file by a pipeline worker, from the cache lookup to the extracted facts.
+ */
+@Name("fr.ensibs.laanaoui.introspector.FileAnalysis")
+@Label("File Analysis")
+@Category("Introspector")
+@Description("Analysis of one input file")
+public final class FileAnalysisEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Cached")
+    @Description("Whether the result came from the cache")
+    public boolean cached;
+
+    @Label("Classes")
+    public int classes;
+
+    @Label("Relations")
+    public int relations;
+}
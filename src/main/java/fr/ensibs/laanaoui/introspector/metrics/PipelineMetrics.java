@@ -0,0 +1,253 @@
+package fr.ensibs.laanaoui.introspector.metrics;
+
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time, throughput and allocation figures of an analysis run.
+ * <p>
+ * A stage is measured from the thread running it: the caller takes {@link #now()} and {@link #allocatedBytes()}
+ * when the stage starts and passes them to {@link #record} when it ends, which adds the elapsed time and the bytes
+ * allocated by the thread meanwhile to the stage, and the bytes to the thread. Allocations are read from the
+ * {@code com.sun.management} extension of the thread MX bean, and count as zero on a JVM that does not support it.
+ * <p>
+ * The parsed files are also measured one by one: the {@linkplain #fileCost costliest ones} are kept for the
+ * slowest-files report, and the files over their {@linkplain fr.ensibs.laanaoui.introspector.FileBudget budget}
+ * are listed.
+ * <p>
+ * Every method may be called concurrently; the counters are {@link LongAdder}s, so workers do not contend on them.
+ */
+public final class PipelineMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    /**
+     * The stages of the analysis of a file.
+     */
+    public enum Stage {
+        /** Listing the input files. */
+        WALK,
+        /** Reading the content of a file. */
+        READ,
+        /** Building the syntax tree, or visiting the class file in bytecode mode. */
+        PARSE,
+        /** Extracting the classes and relations from the syntax tree. */
+        EXTRACT,
+        /** Writing the results. */
+        SERIALIZE
+    }
+
+    private final long start = System.nanoTime();
+    private final Map<Stage, StageCounters> stages = new EnumMap<>(Stage.class);
+    private final Map<String, LongAdder> threadAllocations = new ConcurrentHashMap<>();
+    private final LongAdder files = new LongAdder();
+    private final LongAdder cachedFiles = new LongAdder();
+    private final LongAdder classes = new LongAdder();
+    private final LongAdder relations = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final int slowestFiles;
+    private final PriorityQueue<FileCost> slowest = new PriorityQueue<>(Comparator.comparingLong(FileCost::micros));
+    private final Queue<OverBudgetFile> overBudget = new ConcurrentLinkedQueue<>();
+
+    public PipelineMetrics() {
+        this(10);
+    }
+
+    /**
+     * @param slowestFiles the number of files of the slowest-files report
+     */
+    public PipelineMetrics(int slowestFiles) {
+        this.slowestFiles = slowestFiles;
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new StageCounters());
+        }
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or {@code 0} if this is not measurable.
+     */
+    public static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Adds the time elapsed and the bytes allocated by the current thread since {@code startNanos} and
+     * {@code startAllocated} to {@code stage}.
+     */
+    public void record(Stage stage, long startNanos, long startAllocated) {
+        long allocated = allocatedBytes() - startAllocated;
+        StageCounters counters = stages.get(stage);
+        counters.nanos.add(now() - startNanos);
+        counters.count.increment();
+        counters.allocated.add(allocated);
+        threadAllocations.computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder()).add(allocated);
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Counts a file whose analysis reached the sink.
+     *
+     * @param cached whether the analysis came from the cache rather than the parser
+     */
+    public void fileAnalyzed(FileAnalysis analysis, boolean cached) {
+        files.increment();
+        if (cached) {
+            cachedFiles.increment();
+        }
+        classes.add(analysis.classes().size());
+        relations.add(analysis.relations().size());
+    }
+
+    /**
+     * Records the cost of a parsed file.
+     *
+     * @param nodes the number of nodes of its syntax tree
+     */
+    public void fileCost(String path, long bytes, long nodes, long parseNanos, long extractNanos) {
+        FileCost cost = new FileCost(path, bytes, nodes, parseNanos / 1000, extractNanos / 1000);
+        synchronized (slowest) {
+            if (slowest.size() < slowestFiles) {
+                slowest.add(cost);
+            } else if (slowestFiles > 0 && slowest.peek().micros() < cost.micros()) {
+                slowest.poll();
+                slowest.add(cost);
+            }
+        }
+    }
+
+    /**
+     * Records a file over its budget.
+     *
+     * @param reason  {@code "size"} or {@code "time"}
+     * @param outcome {@code "fallback"} if its facts come from the structure-only parse, {@code "skipped"} if it has
+     *                none
+     */
+    public void overBudget(String path, String reason, String outcome) {
+        overBudget.add(new OverBudgetFile(path, reason, outcome));
+    }
+
+    /**
+     * Returns the figures recorded so far. The duration of the run is counted from the creation of these metrics.
+     */
+    public Summary summary() {
+        long millis = (now() - start) / 1_000_000;
+        double seconds = Math.max(millis, 1) / 1000.0;
+        Map<String, StageSummary> stageSummaries = new LinkedHashMap<>();
+        stages.forEach((stage, counters) -> stageSummaries.put(
+                stage.name().toLowerCase(Locale.ROOT), new StageSummary(counters.nanos.sum() / 1_000_000,
+                                                                        counters.count.sum(),
+                                                                        counters.allocated.sum())));
+        Map<String, Long> threads = new TreeMap<>();
+        threadAllocations.forEach((thread, allocated) -> threads.put(thread, allocated.sum()));
+        List<FileCost> costliest;
+        synchronized (slowest) {
+            costliest = new ArrayList<>(slowest);
+        }
+        costliest.sort(Comparator.comparingLong(FileCost::micros).reversed());
+        return new Summary(millis, files.sum(), cachedFiles.sum(), classes.sum(), relations.sum(), bytesRead.sum(),
+                           Math.round(files.sum() / seconds), Math.round(classes.sum() / seconds), stageSummaries,
+                           threads, costliest, List.copyOf(overBudget));
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (LinkageError | UnsupportedOperationException e) {
+            // not a HotSpot-based JVM
+        }
+        return null;
+    }
+
+    private static final class StageCounters {
+
+        final LongAdder nanos = new LongAdder();
+        final LongAdder count = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+    }
+
+    /**
+     * The cost of a parsed file.
+     *
+     * @param path          the path of the file
+     * @param bytes         its size
+     * @param nodes         the number of nodes of its syntax tree
+     * @param parseMicros   the time spent parsing it, in microseconds
+     * @param extractMicros the time spent extracting its facts, in microseconds
+     */
+    public record FileCost(String path, long bytes, long nodes, long parseMicros, long extractMicros) {
+
+        /**
+         * Returns the time spent on the file, in microseconds.
+         */
+        public long micros() {
+            return parseMicros + extractMicros;
+        }
+    }
+
+    /**
+     * A file over its budget.
+     *
+     * @param path    the path of the file
+     * @param reason  {@code "size"} or {@code "time"}
+     * @param outcome {@code "fallback"} or {@code "skipped"}
+     */
+    public record OverBudgetFile(String path, String reason, String outcome) {
+    }
+
+    /**
+     * The figures of a stage. The time of the stages run by the workers is summed over all of them, so it may
+     * exceed the duration of the run.
+     *
+     * @param millis         the time spent in the stage
+     * @param count          the number of times the stage ran
+     * @param allocatedBytes the bytes allocated while running it
+     */
+    public record StageSummary(long millis, long count, long allocatedBytes) {
+    }
+
+    /**
+     * The figures of a run.
+     *
+     * @param millis           the duration of the run
+     * @param files            the number of files analyzed
+     * @param cachedFiles      how many of them came from the cache
+     * @param classes          the number of classes extracted
+     * @param relations        the number of relations extracted
+     * @param bytesRead        the bytes read from the input files
+     * @param filesPerSecond   the files analyzed per second of the run
+     * @param classesPerSecond the classes extracted per second of the run
+     * @param stages           the figures of every stage, by lowercase name
+     * @param threads          the bytes allocated by every thread in the measured stages, by thread name
+     * @param slowestFiles     the costliest parsed files, costliest first
+     * @param overBudget       the files over their budget
+     */
+    public record Summary(long millis, long files, long cachedFiles, long classes, long relations, long bytesRead,
+                          long filesPerSecond, long classesPerSecond, Map<String, StageSummary> stages,
+                          Map<String, Long> threads, List<FileCost> slowestFiles, List<OverBudgetFile> overBudget) {
+    }
+}
@@ -0,0 +1,17 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.List;
+
+/**
+ * A class or interface extracted from a compilation unit.
+ *
+ * @param name        the simple name of the type
+ * @param packageName the package of the compilation unit, empty for the default package
+ * @param type        {@code "class"} or {@code "interface"}
+ * @param modifiers   the modifiers, as printed by JavaParser
+ * @param fields      the fields declared by the type
+ * @param methods     the methods declared by the type
+ */
+public record ClassInfo(String name, String packageName, String type, String modifiers,
+                        List<FieldInfo> fields, List<MethodInfo> methods) {
+}
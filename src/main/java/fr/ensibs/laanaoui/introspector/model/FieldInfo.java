@@ -0,0 +1,10 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+/**
+ * A field of a class, described by its first declared variable.
+ *
+ * @param name the field name
+ * @param type the field type, as written in the source
+ */
+public record FieldInfo(String name, String type) {
+}
@@ -0,0 +1,18 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.List;
+
+/**
+ * Everything extracted from a single source file. This is the unit flowing through the analysis pipeline: once
+ * it is built, the syntax tree it comes from is no longer referenced.
+ *
+ * @param source    the path of the analyzed file
+ * @param classes   the classes and interfaces of the file, in traversal order
+ * @param relations the relations of these classes, in traversal order
+ */
+public record FileAnalysis(String source, List<ClassInfo> classes, List<Relation> relations) {
+
+    public static FileAnalysis empty(String source) {
+        return new FileAnalysis(source, List.of(), List.of());
+    }
+}
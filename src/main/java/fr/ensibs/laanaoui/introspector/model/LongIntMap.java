@@ -0,0 +1,74 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from {@code long} keys to non-negative {@code int} values, without boxing.
+ */
+final class LongIntMap {
+
+    private static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * Returns the value of {@code key}, or {@code -1} if there is none.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    void put(long key, int value) {
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == MISSING) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, MISSING);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
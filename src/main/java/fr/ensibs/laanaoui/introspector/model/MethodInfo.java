@@ -0,0 +1,13 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.List;
+
+/**
+ * A method of a class.
+ *
+ * @param name        the method name
+ * @param parameters  the method parameters, in declaration order
+ * @param linesOfCode the number of lines spanned by the declaration
+ */
+public record MethodInfo(String name, List<ParameterInfo> parameters, int linesOfCode) {
+}
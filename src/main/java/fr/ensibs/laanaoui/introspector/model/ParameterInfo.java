@@ -0,0 +1,10 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+/**
+ * A method parameter.
+ *
+ * @param name the parameter name
+ * @param type the parameter type, as written in the source
+ */
+public record ParameterInfo(String name, String type) {
+}
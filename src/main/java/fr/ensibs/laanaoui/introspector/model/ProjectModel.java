@@ -0,0 +1,235 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The in-memory model of an analyzed project, kept per source file so that files can be replaced or removed as
+ * they change.
+ * <p>
+ * Every string is interned in a {@link SymbolTable} and the classes are stored as arrays of symbol identifiers:
+ * a field is a {@code (name, type)} pair, a parameter as well, and a relation a {@code (source, target, type)}
+ * triple. {@link FileAnalysis} views are materialized on demand and share the interned strings. This is the model
+ * {@code IncrementalAnalysis} keeps for the server and watch modes, whose files are replaced and removed for as
+ * long as they run.
+ * <p>
+ * The symbol table never forgets a string, so the symbols of the replaced and removed files would pile up over such
+ * a run. The model counts the symbol references its entries hold and those they released: once more references
+ * were released than are held, and at least {@link #MIN_COMPACTION}, the live entries are interned again into a new
+ * table. The table thus stays within a constant factor of the live symbols, for a rebuild cost paid for by the
+ * updates since the previous one.
+ * <p>
+ * Not thread-safe.
+ */
+public final class ProjectModel {
+
+    static final int MIN_COMPACTION = 64 * 1024;
+
+    private SymbolTable symbols = new SymbolTable();
+    private final Map<String, FileEntry> files = new LinkedHashMap<>();
+    private int classCount;
+    private long references;
+    private long released;
+
+    /**
+     * Adds the analysis of a file, replacing the previous analysis of the same file.
+     */
+    public void put(FileAnalysis analysis) {
+        CompactClass[] classes = new CompactClass[analysis.classes().size()];
+        int count = 0;
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = compact(analysis.classes().get(i));
+            count += classes[i].references();
+        }
+        int[] relations = new int[analysis.relations().size() * 3];
+        for (int i = 0, r = 0; i < analysis.relations().size(); i++) {
+            Relation relation = analysis.relations().get(i);
+            relations[r++] = symbols.intern(relation.source());
+            relations[r++] = symbols.intern(relation.target());
+            relations[r++] = symbols.intern(relation.type());
+        }
+
+        FileEntry previous = files.put(analysis.source(), new FileEntry(classes, relations,
+                                                                        count + relations.length));
+        classCount += classes.length;
+        references += count + relations.length;
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /**
+     * Removes the analysis of a file.
+     *
+     * @return whether the file was part of the model
+     */
+    public boolean remove(String source) {
+        FileEntry previous = files.remove(source);
+        if (previous == null) {
+            return false;
+        }
+        release(previous);
+        return true;
+    }
+
+    public FileAnalysis get(String source) {
+        FileEntry entry = files.get(source);
+        return entry == null ? null : materialize(source, entry);
+    }
+
+    /**
+     * Passes the analysis of every file to {@code action}, in insertion order.
+     */
+    public void forEach(Consumer<FileAnalysis> action) {
+        files.forEach((source, entry) -> action.accept(materialize(source, entry)));
+    }
+
+    public Set<String> sources() {
+        return Collections.unmodifiableSet(files.keySet());
+    }
+
+    public int fileCount() {
+        return files.size();
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    /**
+     * Returns the symbol table of the model. It is replaced when the model is compacted, so the table and its
+     * identifiers are only valid until the next {@link #put} or {@link #remove}.
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    private void release(FileEntry entry) {
+        classCount -= entry.classes().length;
+        references -= entry.references();
+        released += entry.references();
+        if (released >= MIN_COMPACTION && released > references) {
+            compact();
+        }
+    }
+
+    /**
+     * Interns the symbols of the live entries into a new table, dropping those only the released entries used.
+     */
+    private void compact() {
+        SymbolTable compacted = new SymbolTable();
+        int[] ids = new int[symbols.size()];
+        Arrays.fill(ids, -1);
+        IntUnaryOperator remap = id -> ids[id] >= 0 ? ids[id] : (ids[id] = compacted.intern(symbols.symbol(id)));
+        files.replaceAll((source, entry) -> entry.remap(remap));
+        symbols = compacted;
+        released = 0;
+    }
+
+    private CompactClass compact(ClassInfo clazz) {
+        int[] fields = new int[clazz.fields().size() * 2];
+        for (int i = 0, f = 0; i < clazz.fields().size(); i++) {
+            FieldInfo field = clazz.fields().get(i);
+            fields[f++] = symbols.intern(field.name());
+            fields[f++] = symbols.intern(field.type());
+        }
+        CompactMethod[] methods = new CompactMethod[clazz.methods().size()];
+        for (int i = 0; i < methods.length; i++) {
+            MethodInfo method = clazz.methods().get(i);
+            int[] parameters = new int[method.parameters().size() * 2];
+            for (int j = 0, p = 0; j < method.parameters().size(); j++) {
+                ParameterInfo param = method.parameters().get(j);
+                parameters[p++] = symbols.intern(param.name());
+                parameters[p++] = symbols.intern(param.type());
+            }
+            methods[i] = new CompactMethod(symbols.intern(method.name()), parameters, method.linesOfCode());
+        }
+        return new CompactClass(symbols.intern(clazz.name()), symbols.intern(clazz.packageName()),
+                                symbols.intern(clazz.type()), symbols.intern(clazz.modifiers()), fields, methods);
+    }
+
+    private FileAnalysis materialize(String source, FileEntry entry) {
+        List<ClassInfo> classes = new ArrayList<>(entry.classes().length);
+        for (CompactClass clazz : entry.classes()) {
+            List<FieldInfo> fields = new ArrayList<>(clazz.fields().length / 2);
+            for (int f = 0; f < clazz.fields().length; f += 2) {
+                fields.add(new FieldInfo(symbols.symbol(clazz.fields()[f]), symbols.symbol(clazz.fields()[f + 1])));
+            }
+            List<MethodInfo> methods = new ArrayList<>(clazz.methods().length);
+            for (CompactMethod method : clazz.methods()) {
+                List<ParameterInfo> parameters = new ArrayList<>(method.parameters().length / 2);
+                for (int p = 0; p < method.parameters().length; p += 2) {
+                    parameters.add(new ParameterInfo(symbols.symbol(method.parameters()[p]),
+                                                     symbols.symbol(method.parameters()[p + 1])));
+                }
+                methods.add(new MethodInfo(symbols.symbol(method.name()), parameters, method.linesOfCode()));
+            }
+            classes.add(new ClassInfo(symbols.symbol(clazz.name()), symbols.symbol(clazz.packageName()),
+                                      symbols.symbol(clazz.type()), symbols.symbol(clazz.modifiers()),
+                                      fields, methods));
+        }
+        List<Relation> relations = new ArrayList<>(entry.relations().length / 3);
+        for (int r = 0; r < entry.relations().length; r += 3) {
+            relations.add(new Relation(symbols.symbol(entry.relations()[r]), symbols.symbol(entry.relations()[r + 1]),
+                                       symbols.symbol(entry.relations()[r + 2])));
+        }
+        return new FileAnalysis(source, classes, relations);
+    }
+
+    /**
+     * Replaces every identifier of {@code values} by its image through {@code remap}, in place.
+     */
+    private static int[] remap(int[] values, IntUnaryOperator remap) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = remap.applyAsInt(values[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @param references the number of symbol identifiers the entry holds
+     */
+    private record FileEntry(CompactClass[] classes, int[] relations, int references) {
+
+        FileEntry remap(IntUnaryOperator remap) {
+            CompactClass[] remapped = new CompactClass[classes.length];
+            for (int i = 0; i < classes.length; i++) {
+                remapped[i] = classes[i].remap(remap);
+            }
+            return new FileEntry(remapped, ProjectModel.remap(relations, remap), references);
+        }
+    }
+
+    private record CompactClass(int name, int packageName, int type, int modifiers, int[] fields,
+                                CompactMethod[] methods) {
+
+        int references() {
+            int count = 4 + fields.length;
+            for (CompactMethod method : methods) {
+                count += 1 + method.parameters().length;
+            }
+            return count;
+        }
+
+        CompactClass remap(IntUnaryOperator remap) {
+            CompactMethod[] remapped = new CompactMethod[methods.length];
+            for (int i = 0; i < methods.length; i++) {
+                remapped[i] = new CompactMethod(remap.applyAsInt(methods[i].name()),
+                                                ProjectModel.remap(methods[i].parameters(), remap),
+                                                methods[i].linesOfCode());
+            }
+            return new CompactClass(remap.applyAsInt(name), remap.applyAsInt(packageName), remap.applyAsInt(type),
+                                    remap.applyAsInt(modifiers), ProjectModel.remap(fields, remap), remapped);
+        }
+    }
+
+    private record CompactMethod(int name, int[] parameters, int linesOfCode) {
+    }
+}
@@ -0,0 +1,11 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+/**
+ * A relation between two types.
+ *
+ * @param source the name of the type the relation starts from
+ * @param target the name of the referenced type
+ * @param type   {@code "extends"}, {@code "implements"} or {@code "uses"}
+ */
+public record Relation(String source, String target, String type) {
+}
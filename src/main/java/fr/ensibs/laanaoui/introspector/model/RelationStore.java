@@ -0,0 +1,99 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects the relations of a project as edges between interned symbols.
+ * <p>
+ * By default identical {@code (source, target, type)} relations are collapsed into a single edge carrying the number
+ * of occurrences: a class with ten setters taking an {@code Integer} has one {@code uses} edge to {@code Integer}
+ * with a count of ten. Edges are keyed by their packed symbol identifiers in a primitive hash map. In raw mode every
+ * relation is kept as its own edge with a count of one, as extracted.
+ * <p>
+ * Edges are reported in the order of their first occurrence. Not thread-safe.
+ */
+public final class RelationStore {
+
+    /**
+     * The relation types an edge can have, as their 2-bit code in the packed key.
+     */
+    static final List<String> TYPES = List.of("extends", "implements", "uses");
+
+    private final SymbolTable symbols;
+    private final boolean raw;
+    private final LongIntMap edgeIndex;
+    private long[] edges = new long[1024];
+    private int[] counts = new int[1024];
+    private int size;
+
+    public RelationStore(SymbolTable symbols, boolean raw) {
+        this.symbols = symbols;
+        this.raw = raw;
+        this.edgeIndex = raw ? null : new LongIntMap(1024);
+    }
+
+    public void add(Relation relation) {
+        add(relation.source(), relation.target(), relation.type());
+    }
+
+    public void add(String source, String target, String type) {
+        long edge = pack(symbols.intern(source), symbols.intern(target), typeCode(type));
+        int index = raw ? -1 : edgeIndex.get(edge);
+        if (index >= 0) {
+            counts[index]++;
+            return;
+        }
+        if (size == edges.length) {
+            edges = Arrays.copyOf(edges, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        edges[size] = edge;
+        counts[size] = 1;
+        if (!raw) {
+            edgeIndex.put(edge, size);
+        }
+        size++;
+    }
+
+    /**
+     * Returns whether identical relations are kept as separate edges.
+     */
+    public boolean isRaw() {
+        return raw;
+    }
+
+    /**
+     * Returns the number of edges.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void forEach(EdgeConsumer consumer) throws IOException {
+        for (int i = 0; i < size; i++) {
+            long edge = edges[i];
+            consumer.accept(symbols.symbol((int) (edge >>> 33)), symbols.symbol((int) (edge >>> 2) & 0x7FFFFFFF),
+                            TYPES.get((int) edge & 0b11), counts[i]);
+        }
+    }
+
+    private static long pack(int source, int target, int type) {
+        return ((long) source << 33) | ((long) target << 2) | type;
+    }
+
+    private static int typeCode(String type) {
+        int code = TYPES.indexOf(type);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown relation type: " + type);
+        }
+        return code;
+    }
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+
+        void accept(String source, String target, String type, int count) throws IOException;
+    }
+}
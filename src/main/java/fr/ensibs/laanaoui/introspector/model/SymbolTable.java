@@ -0,0 +1,50 @@
+package fr.ensibs.laanaoui.introspector.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns a dense integer identifier to every distinct name, package or type string, so that each one is stored
+ * once however many classes, members and relations refer to it. Identifiers are never reclaimed: a table whose
+ * strings fall out of use is replaced by a new one, as {@link ProjectModel} does.
+ * <p>
+ * Not thread-safe.
+ */
+public final class SymbolTable {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] symbols = new String[256];
+
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        int next = ids.size();
+        if (next == symbols.length) {
+            symbols = Arrays.copyOf(symbols, next * 2);
+        }
+        symbols[next] = symbol;
+        ids.put(symbol, next);
+        return next;
+    }
+
+    /**
+     * Returns the identifier of {@code symbol}, or {@code -1} if it was never interned.
+     */
+    public int find(String symbol) {
+        return ids.getOrDefault(symbol, -1);
+    }
+
+    public String symbol(int id) {
+        if (id < 0 || id >= ids.size()) {
+            throw new IllegalArgumentException("Unknown symbol: " + id);
+        }
+        return symbols[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
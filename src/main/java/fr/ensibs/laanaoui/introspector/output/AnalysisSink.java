@@ -0,0 +1,21 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The emit stage of the analysis pipeline: receives the result of every analyzed file, in order, from a single
+ * thread.
+ */
+public interface AnalysisSink extends Closeable {
+
+    void accept(FileAnalysis analysis) throws IOException;
+
+    /**
+     * Completes the output once every file was accepted. A sink closed without being finished leaves an incomplete
+     * output behind.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,222 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import fr.ensibs.laanaoui.introspector.model.SymbolTable;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the analysis as Arrow IPC files, one table per file: {@code classes.arrow}, {@code methods.arrow} and
+ * {@code relations.arrow}.
+ * <p>
+ * Every string column is dictionary-encoded: the rows only hold 32-bit indexes into a dictionary written once at
+ * the start of the file, so the package, type and relation names repeated over millions of rows are stored once,
+ * and a scan reads the index buffers of the columns it needs and nothing else. The relations of a file are counted,
+ * like the edges of the JSON output.
+ * <p>
+ * An Arrow file holds its dictionaries before its record batches, so the rows are kept as dictionary indexes until
+ * {@link #finish()}, which writes them by batches of {@link #BATCH_ROWS} rows. Each file is written to a temporary
+ * file that replaces it once complete.
+ * <p>
+ * The Arrow memory allocator reads the address of direct buffers, so the JVM must open {@code java.nio} to it with
+ * {@link #JVM_OPTION}.
+ */
+public final class ArrowAnalysisWriter implements AnalysisSink {
+
+    /**
+     * The JVM option the Arrow allocator needs.
+     */
+    public static final String JVM_OPTION = "--add-opens=java.base/java.nio=ALL-UNNAMED";
+
+    static final int BATCH_ROWS = 64 * 1024;
+
+    private final Path directory;
+    private final Table classes = new Table("classes", List.of("file", "package", "name", "type", "modifiers"),
+                                            List.of("fields", "methods"));
+    private final Table methods = new Table("methods", List.of("file", "package", "class", "name"),
+                                            List.of("parameter_count", "lines_of_code"));
+    private final Table relations = new Table("relations", List.of("file", "source", "target", "type"),
+                                              List.of("count"));
+
+    /**
+     * @param directory the directory the files are written to, created if needed
+     */
+    public ArrowAnalysisWriter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns whether the JVM lets the Arrow allocator work, having been started with {@link #JVM_OPTION}.
+     */
+    public static boolean isSupported() {
+        return Object.class.getModule().isOpen("java.nio", ArrowAnalysisWriter.class.getModule());
+    }
+
+    @Override
+    public void accept(FileAnalysis analysis) {
+        String file = analysis.source();
+        for (ClassInfo clazz : analysis.classes()) {
+            classes.add(file, clazz.packageName(), clazz.name(), clazz.type(), clazz.modifiers());
+            classes.add(clazz.fields().size(), clazz.methods().size());
+            for (MethodInfo method : clazz.methods()) {
+                methods.add(file, clazz.packageName(), clazz.name(), method.name());
+                methods.add(method.parameters().size(), method.linesOfCode());
+            }
+        }
+        Map<Relation, Integer> counts = new LinkedHashMap<>();
+        analysis.relations().forEach(relation -> counts.merge(relation, 1, Integer::sum));
+        for (Map.Entry<Relation, Integer> relation : counts.entrySet()) {
+            relations.add(file, relation.getKey().source(), relation.getKey().target(), relation.getKey().type());
+            relations.add(relation.getValue());
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        Files.createDirectories(directory);
+        try (BufferAllocator allocator = new RootAllocator()) {
+            for (Table table : List.of(classes, methods, relations)) {
+                table.write(directory.resolve(table.name + ".arrow"), allocator);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * The rows of a table, dictionary-encoded string columns first, then integer ones.
+     */
+    private static final class Table {
+
+        private final String name;
+        private final List<String> columnNames = new ArrayList<>();
+        private final SymbolTable[] dictionaries;
+        private final IntColumn[] columns;
+        private int next;
+
+        Table(String name, List<String> stringColumns, List<String> intColumns) {
+            this.name = name;
+            columnNames.addAll(stringColumns);
+            columnNames.addAll(intColumns);
+            dictionaries = new SymbolTable[stringColumns.size()];
+            Arrays.setAll(dictionaries, i -> new SymbolTable());
+            columns = new IntColumn[columnNames.size()];
+            Arrays.setAll(columns, i -> new IntColumn());
+        }
+
+        /**
+         * Adds the string columns of a row.
+         */
+        void add(String... values) {
+            for (int i = 0; i < values.length; i++) {
+                columns[i].add(dictionaries[i].intern(values[i]));
+            }
+            next = values.length;
+        }
+
+        /**
+         * Adds the integer columns of the row whose string columns were just added.
+         */
+        void add(int... values) {
+            for (int value : values) {
+                columns[next++].add(value);
+            }
+        }
+
+        void write(Path file, BufferAllocator allocator) throws IOException {
+            DictionaryProvider.MapDictionaryProvider provider = new DictionaryProvider.MapDictionaryProvider();
+            List<Field> fields = new ArrayList<>();
+            ArrowType.Int index = new ArrowType.Int(32, true);
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    if (i < dictionaries.length) {
+                        DictionaryEncoding encoding = new DictionaryEncoding(i, false, index);
+                        provider.put(new Dictionary(dictionaryVector(columnNames.get(i), dictionaries[i], allocator),
+                                                    encoding));
+                        fields.add(new Field(columnNames.get(i), new FieldType(false, index, encoding), null));
+                    } else {
+                        fields.add(new Field(columnNames.get(i), FieldType.notNullable(index), null));
+                    }
+                }
+
+                OutputTarget target = new OutputTarget(file, false);
+                try (VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields), allocator);
+                     OutputTarget.Output output = target.open()) {
+                    try (ArrowFileWriter writer = new ArrowFileWriter(root, provider,
+                                                                      Channels.newChannel(output.stream()))) {
+                        writer.start();
+                        int rows = columns[0].size;
+                        for (int start = 0; start < rows; start += BATCH_ROWS) {
+                            int count = Math.min(BATCH_ROWS, rows - start);
+                            for (int i = 0; i < columns.length; i++) {
+                                IntVector vector = (IntVector) root.getVector(i);
+                                vector.allocateNew(count);
+                                for (int row = 0; row < count; row++) {
+                                    vector.set(row, columns[i].values[start + row]);
+                                }
+                            }
+                            root.setRowCount(count);
+                            writer.writeBatch();
+                        }
+                        writer.end();
+                    }
+                    output.commit();
+                }
+            } finally {
+                for (long id : provider.getDictionaryIds()) {
+                    provider.lookup(id).getVector().close();
+                }
+            }
+        }
+
+        private static VarCharVector dictionaryVector(String name, SymbolTable symbols, BufferAllocator allocator) {
+            VarCharVector vector = new VarCharVector(name, allocator);
+            vector.allocateNew(symbols.size());
+            for (int i = 0; i < symbols.size(); i++) {
+                vector.setSafe(i, symbols.symbol(i).getBytes(StandardCharsets.UTF_8));
+            }
+            vector.setValueCount(symbols.size());
+            return vector;
+        }
+    }
+
+    private static final class IntColumn {
+
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads back a document written by {@link JsonAnalysisWriter}, in any {@link OutputFormat}, streaming its content
+ * into an {@link AnalysisSink} or collecting it into a single {@link FileAnalysis}.
+ * <p>
+ * Each class is passed as its own {@link FileAnalysis}, then the relations follow in document order. A counted
+ * relation is expanded into as many relations as its count, so that writing the result again with the same
+ * settings gives back the same document. Unknown fields are skipped. The sink is neither finished nor closed.
+ */
+public final class JsonAnalysisReader {
+
+    private final JsonFactory factory;
+
+    public JsonAnalysisReader() {
+        this(new JsonFactory());
+    }
+
+    public JsonAnalysisReader(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    public JsonAnalysisReader(OutputFormat format) {
+        this(format.factory());
+    }
+
+    /**
+     * Returns every class and relation of the document, as the analysis of the document file.
+     */
+    public FileAnalysis read(File file) throws IOException {
+        List<ClassInfo> classes = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+        read(file, new AnalysisSink() {
+            @Override
+            public void accept(FileAnalysis analysis) {
+                classes.addAll(analysis.classes());
+                relations.addAll(analysis.relations());
+            }
+
+            @Override
+            public void finish() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return new FileAnalysis(file.getPath(), classes, relations);
+    }
+
+    public void read(File file, AnalysisSink sink) throws IOException {
+        try (JsonParser parser = factory.createParser(file)) {
+            String source = file.getPath();
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "classes" -> {
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            sink.accept(new FileAnalysis(source, List.of(readClass(parser)), List.of()));
+                        }
+                    }
+                    case "relations" -> {
+                        expect(parser, value, JsonToken.START_ARRAY);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            sink.accept(new FileAnalysis(source, List.of(), readRelations(parser)));
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static ClassInfo readClass(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        String name = null;
+        String packageName = null;
+        String type = null;
+        String modifiers = null;
+        List<FieldInfo> fields = new ArrayList<>();
+        List<MethodInfo> methods = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = parser.getText();
+                case "package" -> packageName = parser.getText();
+                case "type" -> type = parser.getText();
+                case "modifiers" -> modifiers = parser.getText();
+                case "fields" -> {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        String[] values = readStrings(parser, "name", "type");
+                        fields.add(new FieldInfo(values[0], values[1]));
+                    }
+                }
+                case "methods" -> {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        methods.add(readMethod(parser));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return new ClassInfo(name, packageName, type, modifiers, fields, methods);
+    }
+
+    private static MethodInfo readMethod(JsonParser parser) throws IOException {
+        String name = null;
+        List<ParameterInfo> parameters = new ArrayList<>();
+        int linesOfCode = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "name" -> name = parser.getText();
+                case "parameters" -> {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        String[] values = readStrings(parser, "name", "type");
+                        parameters.add(new ParameterInfo(values[0], values[1]));
+                    }
+                }
+                case "linesOfCode" -> linesOfCode = parser.getIntValue();
+                default -> parser.skipChildren();
+            }
+        }
+        return new MethodInfo(name, parameters, linesOfCode);
+    }
+
+    private static List<Relation> readRelations(JsonParser parser) throws IOException {
+        String[] values = new String[3];
+        int count = 1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "source" -> values[0] = parser.getText();
+                case "target" -> values[1] = parser.getText();
+                case "type" -> values[2] = parser.getText();
+                case "count" -> {
+                    count = parser.getIntValue();
+                    if (count < 1) {
+                        throw new JsonParseException(parser, "Expected a relation count of at least 1 but found "
+                                + count);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return Collections.nCopies(count, new Relation(values[0], values[1], values[2]));
+    }
+
+    private static String[] readStrings(JsonParser parser, String... names) throws IOException {
+        String[] values = new String[names.length];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            int index = List.of(names).indexOf(field);
+            if (index >= 0) {
+                values[index] = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return values;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import fr.ensibs.laanaoui.introspector.model.RelationStore;
+import fr.ensibs.laanaoui.introspector.model.SymbolTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the analysis as a {@code {"classes": [...], "relations": [...]}} document, straight to a
+ * {@link JsonGenerator}.
+ * <p>
+ * Classes are written as soon as they are accepted. Relations come after all the classes in the document, so they
+ * are kept until {@link #finish()} in a {@link RelationStore}. Identical relations are written once, with a
+ * {@code count} field; with raw relations and the default pretty printer, the output is the one of
+ * {@code ObjectMapper.writerWithDefaultPrettyPrinter()} over the former Jackson tree. The generator may be of any
+ * {@link OutputFormat}.
+ */
+public final class JsonAnalysisWriter implements AnalysisSink {
+
+    private final JsonGenerator generator;
+    private final RelationStore relations;
+
+    /**
+     * @param rawRelations whether every extracted relation is written, rather than one edge per distinct relation
+     */
+    public JsonAnalysisWriter(JsonGenerator generator, boolean rawRelations) throws IOException {
+        this.generator = generator;
+        this.relations = new RelationStore(new SymbolTable(), rawRelations);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("classes");
+    }
+
+    public static JsonAnalysisWriter create(File file, boolean pretty, boolean rawRelations) throws IOException {
+        return create(file, OutputFormat.JSON, pretty, rawRelations);
+    }
+
+    /**
+     * Creates a writer of the given format. Pretty printing only applies to JSON.
+     */
+    public static JsonAnalysisWriter create(File file, OutputFormat format, boolean pretty, boolean rawRelations)
+            throws IOException {
+        return create(format.factory().createGenerator(file, JsonEncoding.UTF8), format, pretty, rawRelations);
+    }
+
+    /**
+     * Creates a writer of the given format over a stream, which is closed along with the writer.
+     */
+    public static JsonAnalysisWriter create(OutputStream out, OutputFormat format, boolean pretty,
+                                            boolean rawRelations) throws IOException {
+        return create(format.factory().createGenerator(out, JsonEncoding.UTF8), format, pretty, rawRelations);
+    }
+
+    private static JsonAnalysisWriter create(JsonGenerator generator, OutputFormat format, boolean pretty,
+                                             boolean rawRelations) throws IOException {
+        if (pretty && format.isText()) {
+            generator.useDefaultPrettyPrinter();
+        }
+        return new JsonAnalysisWriter(generator, rawRelations);
+    }
+
+    @Override
+    public void accept(FileAnalysis analysis) throws IOException {
+        for (ClassInfo clazz : analysis.classes()) {
+            writeClass(clazz);
+        }
+        for (Relation relation : analysis.relations()) {
+            relations.add(relation);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        finish(generator -> {
+        });
+    }
+
+    /**
+     * Completes the document, letting {@code trailer} write additional fields after the relations.
+     */
+    public void finish(Trailer trailer) throws IOException {
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("relations");
+        relations.forEach(this::writeRelation);
+        generator.writeEndArray();
+        trailer.write(generator);
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    /**
+     * Writes the fields of a class object, from its name to its methods, as both the document and the NDJSON
+     * records hold them.
+     */
+    static void writeClassFields(JsonGenerator generator, ClassInfo clazz) throws IOException {
+        generator.writeStringField("name", clazz.name());
+        generator.writeStringField("package", clazz.packageName());
+        generator.writeStringField("type", clazz.type());
+        generator.writeStringField("modifiers", clazz.modifiers());
+
+        generator.writeArrayFieldStart("fields");
+        for (FieldInfo field : clazz.fields()) {
+            generator.writeStartObject();
+            generator.writeStringField("name", field.name());
+            generator.writeStringField("type", field.type());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("methods");
+        for (MethodInfo method : clazz.methods()) {
+            generator.writeStartObject();
+            generator.writeStringField("name", method.name());
+            generator.writeArrayFieldStart("parameters");
+            for (ParameterInfo param : method.parameters()) {
+                generator.writeStartObject();
+                generator.writeStringField("name", param.name());
+                generator.writeStringField("type", param.type());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("linesOfCode", method.linesOfCode());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeClass(ClassInfo clazz) throws IOException {
+        generator.writeStartObject();
+        writeClassFields(generator, clazz);
+        generator.writeEndObject();
+    }
+
+    private void writeRelation(String source, String target, String type, int count) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("source", source);
+        generator.writeStringField("target", target);
+        generator.writeStringField("type", type);
+        if (!relations.isRaw()) {
+            generator.writeNumberField("count", count);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the fields that end a document, such as the summaries derived from the whole analysis.
+     */
+    @FunctionalInterface
+    public interface Trailer {
+
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,112 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the analysis as newline-delimited JSON, one record per line, so that it can be consumed while the run
+ * goes on.
+ * <p>
+ * Each accepted file gives a {@code "kind": "class"} record per class, with the fields of a class of the document
+ * format and the {@code file} it comes from, then a {@code "kind": "relation"} record per relation, whose
+ * {@code source} is the class the relation starts from. The lines are flushed once the file is written, so a
+ * consumer never sees part of a file, and everything written before a crash stays readable. Identical relations
+ * of a file are written once with a {@code count}, unless raw relations are asked for; the same relation may come
+ * again from another file. The {@code "kind": "end"} record written by
+ * {@link #finish()} holds the totals of the run, and its absence means that the run did not complete.
+ */
+public final class NdjsonAnalysisWriter implements AnalysisSink {
+
+    private final JsonGenerator generator;
+    private final boolean rawRelations;
+    private long files;
+    private long classes;
+    private long relations;
+
+    /**
+     * @param rawRelations whether every extracted relation is written, rather than one record per distinct relation
+     *                     of a file
+     */
+    public NdjsonAnalysisWriter(JsonGenerator generator, boolean rawRelations) {
+        this.generator = generator;
+        this.rawRelations = rawRelations;
+        generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Creates a writer over a stream, which is closed along with the writer.
+     */
+    public static NdjsonAnalysisWriter create(OutputStream out, boolean rawRelations) throws IOException {
+        return new NdjsonAnalysisWriter(new JsonFactory().createGenerator(out, JsonEncoding.UTF8), rawRelations);
+    }
+
+    @Override
+    public void accept(FileAnalysis analysis) throws IOException {
+        for (ClassInfo clazz : analysis.classes()) {
+            writeClass(analysis.source(), clazz);
+        }
+        if (rawRelations) {
+            for (Relation relation : analysis.relations()) {
+                writeRelation(relation, 1);
+            }
+        } else {
+            Map<Relation, Integer> counts = new LinkedHashMap<>();
+            analysis.relations().forEach(relation -> counts.merge(relation, 1, Integer::sum));
+            for (Map.Entry<Relation, Integer> relation : counts.entrySet()) {
+                writeRelation(relation.getKey(), relation.getValue());
+            }
+        }
+        files++;
+        classes += analysis.classes().size();
+        relations += analysis.relations().size();
+        generator.flush();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("kind", "end");
+        generator.writeNumberField("files", files);
+        generator.writeNumberField("classes", classes);
+        generator.writeNumberField("relations", relations);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    private void writeClass(String source, ClassInfo clazz) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("kind", "class");
+        generator.writeStringField("file", source);
+        JsonAnalysisWriter.writeClassFields(generator, clazz);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeRelation(Relation relation, int count) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("kind", "relation");
+        generator.writeStringField("source", relation.source());
+        generator.writeStringField("target", relation.target());
+        generator.writeStringField("type", relation.type());
+        if (!rawRelations) {
+            generator.writeNumberField("count", count);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
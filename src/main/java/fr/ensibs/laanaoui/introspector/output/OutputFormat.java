@@ -0,0 +1,80 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import java.util.Locale;
+
+/**
+ * The encodings of the analysis document. All of them carry the same schema, written and read through the Jackson
+ * streaming API, so {@link JsonAnalysisWriter} and {@link JsonAnalysisReader} only differ by the factory they use.
+ * <p>
+ * The binary encodings write back-references to the field names and string values already written, which make up
+ * most of a document: the same type, modifier and parameter names come back again and again.
+ */
+public enum OutputFormat {
+
+    JSON(".json"),
+
+    /**
+     * Jackson Smile, with shared names and shared string values.
+     */
+    SMILE(".smile"),
+
+    /**
+     * CBOR (RFC 8949), with the {@code stringref} extension.
+     */
+    CBOR(".cbor");
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public JsonFactory factory() {
+        return switch (this) {
+            case JSON -> new JsonFactory();
+            case SMILE -> SmileFactory.builder()
+                                      .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                                      .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                                      .build();
+            case CBOR -> CBORFactory.builder()
+                                    .enable(CBORGenerator.Feature.STRINGREF)
+                                    .build();
+        };
+    }
+
+    /**
+     * Returns whether the format is text, the only one pretty printing applies to.
+     */
+    public boolean isText() {
+        return this == JSON;
+    }
+
+    /**
+     * Returns the name of a file of this format, {@code project_analysis.smile} for {@code project_analysis}.
+     */
+    public String fileName(String baseName) {
+        return baseName + extension;
+    }
+
+    /**
+     * Returns the format with the given name, case-insensitively.
+     */
+    public static OutputFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown output format: " + name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
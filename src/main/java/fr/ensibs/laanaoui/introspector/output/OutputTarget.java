@@ -0,0 +1,154 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Where the analysis is written: a file, or the standard output, optionally gzip-compressed.
+ * <p>
+ * An atomic target is written to a temporary file next to it, which only replaces it once {@linkplain
+ * Output#commit() committed}: readers see either the previous file or the complete new one, never a half-written
+ * one, and an interrupted run leaves the previous file in place. Other targets, such as the NDJSON stream, are
+ * written in place so they can be read during the run and keep what was written before a crash; their compressed
+ * stream is sync-flushed along with the stream, so a reader can decompress everything flushed so far.
+ * <p>
+ * The compression runs in the writing thread, between the generator and the file. The deflater works at
+ * {@link #GZIP_LEVEL}, which gives most of the size reduction of the default level at a fraction of its cost on the
+ * repetitive analysis documents, and the compressed stream is buffered by {@link #BUFFER_SIZE} bytes, so the file is
+ * written in large blocks.
+ *
+ * @param file   the file to write, or {@code null} for the standard output
+ * @param gzip   whether the output is gzip-compressed
+ * @param atomic whether the file is replaced once complete, rather than written in place
+ */
+public record OutputTarget(Path file, boolean gzip, boolean atomic) {
+
+    /**
+     * The name of the standard output on the command line.
+     */
+    public static final String STDOUT = "-";
+
+    static final int GZIP_LEVEL = Deflater.BEST_SPEED;
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Creates an atomic target.
+     */
+    public OutputTarget(Path file, boolean gzip) {
+        this(file, gzip, true);
+    }
+
+    public boolean isStdout() {
+        return file == null;
+    }
+
+    /**
+     * Opens the target. The returned output must be committed once complete, and closed in any case.
+     */
+    public Output open() throws IOException {
+        Path temporary = null;
+        OutputStream stream;
+        if (file == null) {
+            stream = new FilterOutputStream(System.out) {
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    out.write(buffer, offset, length);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // the standard output stays open for the rest of the process
+                    flush();
+                }
+            };
+        } else {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            if (atomic) {
+                // not a createTempFile, whose owner-only permissions the target would keep
+                temporary = directory.resolve(file.getFileName() + "." + Long.toUnsignedString(
+                        ThreadLocalRandom.current().nextLong(), Character.MAX_RADIX) + ".tmp");
+                stream = Files.newOutputStream(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } else {
+                stream = Files.newOutputStream(file);
+            }
+        }
+        if (gzip) {
+            try {
+                stream = new GZIPOutputStream(stream, BUFFER_SIZE, !atomic) {
+                    {
+                        def.setLevel(GZIP_LEVEL);
+                    }
+                };
+            } catch (IOException e) {
+                stream.close();
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+                throw e;
+            }
+        }
+        return new Output(stream, temporary);
+    }
+
+    @Override
+    public String toString() {
+        return file == null ? "standard output" : file.toString();
+    }
+
+    /**
+     * An opened target.
+     */
+    public final class Output implements Closeable {
+
+        private final OutputStream stream;
+        private final Path temporary;
+        private boolean committed;
+
+        private Output(OutputStream stream, Path temporary) {
+            this.stream = stream;
+            this.temporary = temporary;
+        }
+
+        /**
+         * Returns the stream to write to. Closing it completes the compressed stream, if any, without committing.
+         */
+        public OutputStream stream() {
+            return stream;
+        }
+
+        /**
+         * Closes the stream and, for an atomic target, moves the written file in place of the target.
+         */
+        public void commit() throws IOException {
+            stream.close();
+            if (temporary != null) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            committed = true;
+        }
+
+        /**
+         * Closes the stream, discarding the written file if it was not committed.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                stream.close();
+            } finally {
+                if (temporary != null && !committed) {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package fr.ensibs.laanaoui.introspector.output;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FieldInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.MethodInfo;
+import fr.ensibs.laanaoui.introspector.model.ParameterInfo;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the analysis to a SQLite database, for ad-hoc queries such as
+ * <pre>{@code
+ * SELECT DISTINCT c.name FROM classes c JOIN relations r ON r.file = c.file AND r.source = c.name
+ * WHERE c.package = 'com.example.service' AND r.target = 'OrderHeader' AND r.type = 'uses'
+ * }</pre>
+ * <p>
+ * The tables are {@code files}, {@code classes}, {@code fields}, {@code methods} and {@code relations}, every row
+ * holding the path of the file it comes from; the relations of a file are counted, like the edges of the JSON
+ * output. The package and name of the classes, and the source and target of the relations, are indexed.
+ * <p>
+ * The whole export is one transaction, the rows being inserted by batches of prepared statements, so readers see
+ * either the previous export or the new one. A database exported before is updated in place: each file is stored
+ * with a digest of its facts, the rows of a file are only replaced when the digest changed, and the files that are
+ * no longer analyzed are deleted when the export {@linkplain #finish() finishes}. A writer closed without being
+ * finished rolls everything back.
+ */
+public final class SqliteAnalysisWriter implements AnalysisSink {
+
+    static final int SCHEMA_VERSION = 1;
+    static final int BATCH_SIZE = 1000;
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS files (path TEXT PRIMARY KEY, digest TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS classes (file TEXT NOT NULL, package TEXT NOT NULL, name TEXT NOT NULL, "
+                    + "type TEXT NOT NULL, modifiers TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS fields (file TEXT NOT NULL, package TEXT NOT NULL, class TEXT NOT NULL, "
+                    + "name TEXT NOT NULL, type TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS methods (file TEXT NOT NULL, package TEXT NOT NULL, class TEXT NOT NULL, "
+                    + "name TEXT NOT NULL, parameters TEXT NOT NULL, parameter_count INTEGER NOT NULL, "
+                    + "lines_of_code INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS relations (file TEXT NOT NULL, source TEXT NOT NULL, target TEXT NOT NULL, "
+                    + "type TEXT NOT NULL, count INTEGER NOT NULL, PRIMARY KEY (file, source, target, type))",
+            "CREATE INDEX IF NOT EXISTS classes_package ON classes (package)",
+            "CREATE INDEX IF NOT EXISTS classes_name ON classes (name)",
+            "CREATE INDEX IF NOT EXISTS classes_file ON classes (file, name)",
+            "CREATE INDEX IF NOT EXISTS fields_class ON fields (file, class)",
+            "CREATE INDEX IF NOT EXISTS methods_class ON methods (file, class)",
+            "CREATE INDEX IF NOT EXISTS relations_source ON relations (source)",
+            "CREATE INDEX IF NOT EXISTS relations_target ON relations (target)"
+    };
+    private static final String[] TABLES = {"classes", "fields", "methods", "relations"};
+
+    private final Connection connection;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, String> previous;
+    private final Set<String> seen = new HashSet<>();
+    private final PreparedStatement upsertFile;
+    private final PreparedStatement insertClass;
+    private final PreparedStatement insertField;
+    private final PreparedStatement insertMethod;
+    private final PreparedStatement insertRelation;
+    private final List<PreparedStatement> deletes = new ArrayList<>();
+    private int pending;
+    private int changed;
+
+    private SqliteAnalysisWriter(Connection connection) throws SQLException {
+        this.connection = connection;
+        try (Statement statement = connection.createStatement()) {
+            int version = 0;
+            try (ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+                if (result.next()) {
+                    version = result.getInt(1);
+                }
+            }
+            if (version != 0 && version != SCHEMA_VERSION) {
+                throw new SQLException("Unsupported schema version " + version + ", expected " + SCHEMA_VERSION);
+            }
+            connection.setAutoCommit(false);
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+            statement.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+
+            previous = new HashMap<>();
+            try (ResultSet result = statement.executeQuery("SELECT path, digest FROM files")) {
+                while (result.next()) {
+                    previous.put(result.getString(1), result.getString(2));
+                }
+            }
+        }
+        upsertFile = connection.prepareStatement(
+                "INSERT INTO files (path, digest) VALUES (?, ?) "
+                        + "ON CONFLICT (path) DO UPDATE SET digest = excluded.digest");
+        insertClass = connection.prepareStatement(
+                "INSERT INTO classes (file, package, name, type, modifiers) VALUES (?, ?, ?, ?, ?)");
+        insertField = connection.prepareStatement(
+                "INSERT INTO fields (file, package, class, name, type) VALUES (?, ?, ?, ?, ?)");
+        insertMethod = connection.prepareStatement(
+                "INSERT INTO methods (file, package, class, name, parameters, parameter_count, lines_of_code) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+        insertRelation = connection.prepareStatement(
+                "INSERT INTO relations (file, source, target, type, count) VALUES (?, ?, ?, ?, ?)");
+        for (String table : TABLES) {
+            deletes.add(connection.prepareStatement("DELETE FROM " + table + " WHERE file = ?"));
+        }
+    }
+
+    /**
+     * Opens the database in {@code file}, creating it if needed.
+     */
+    public static SqliteAnalysisWriter open(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Connection connection = null;
+        try {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+            return new SqliteAnalysisWriter(connection);
+        } catch (SQLException e) {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new IOException("Cannot open the database " + file, e);
+        }
+    }
+
+    @Override
+    public void accept(FileAnalysis analysis) throws IOException {
+        String file = analysis.source();
+        String digest = digest(analysis);
+        seen.add(file);
+        String before = previous.get(file);
+        if (digest.equals(before)) {
+            return;
+        }
+        changed++;
+        try {
+            if (before != null) {
+                // earlier rows are deleted right away, the batched inserts of the file coming after them
+                executeBatches();
+                for (PreparedStatement delete : deletes) {
+                    delete.setString(1, file);
+                    delete.executeUpdate();
+                }
+            }
+            upsertFile.setString(1, file);
+            upsertFile.setString(2, digest);
+            add(upsertFile);
+            for (ClassInfo clazz : analysis.classes()) {
+                addClass(file, clazz);
+            }
+            Map<Relation, Integer> counts = new LinkedHashMap<>();
+            analysis.relations().forEach(relation -> counts.merge(relation, 1, Integer::sum));
+            for (Map.Entry<Relation, Integer> relation : counts.entrySet()) {
+                insertRelation.setString(1, file);
+                insertRelation.setString(2, relation.getKey().source());
+                insertRelation.setString(3, relation.getKey().target());
+                insertRelation.setString(4, relation.getKey().type());
+                insertRelation.setInt(5, relation.getValue());
+                add(insertRelation);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Cannot export " + file, e);
+        }
+    }
+
+    /**
+     * Deletes the files that were not accepted, and commits the export.
+     */
+    @Override
+    public void finish() throws IOException {
+        try {
+            executeBatches();
+            try (PreparedStatement deleteFile = connection.prepareStatement("DELETE FROM files WHERE path = ?")) {
+                for (String file : previous.keySet()) {
+                    if (!seen.contains(file)) {
+                        for (PreparedStatement delete : deletes) {
+                            delete.setString(1, file);
+                            delete.executeUpdate();
+                        }
+                        deleteFile.setString(1, file);
+                        deleteFile.executeUpdate();
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Cannot complete the export", e);
+        }
+    }
+
+    /**
+     * Returns the number of files whose rows were written, the others being unchanged since the previous export.
+     */
+    public int changed() {
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Cannot close the database", e);
+        }
+    }
+
+    private void addClass(String file, ClassInfo clazz) throws SQLException {
+        insertClass.setString(1, file);
+        insertClass.setString(2, clazz.packageName());
+        insertClass.setString(3, clazz.name());
+        insertClass.setString(4, clazz.type());
+        insertClass.setString(5, clazz.modifiers());
+        add(insertClass);
+        for (FieldInfo field : clazz.fields()) {
+            insertField.setString(1, file);
+            insertField.setString(2, clazz.packageName());
+            insertField.setString(3, clazz.name());
+            insertField.setString(4, field.name());
+            insertField.setString(5, field.type());
+            add(insertField);
+        }
+        for (MethodInfo method : clazz.methods()) {
+            insertMethod.setString(1, file);
+            insertMethod.setString(2, clazz.packageName());
+            insertMethod.setString(3, clazz.name());
+            insertMethod.setString(4, method.name());
+            insertMethod.setString(5, method.parameters().stream()
+                                                .map(ParameterInfo::type)
+                                                .collect(Collectors.joining(", ")));
+            insertMethod.setInt(6, method.parameters().size());
+            insertMethod.setInt(7, method.linesOfCode());
+            add(insertMethod);
+        }
+    }
+
+    private void add(PreparedStatement statement) throws SQLException {
+        statement.addBatch();
+        if (++pending >= BATCH_SIZE) {
+            executeBatches();
+        }
+    }
+
+    private void executeBatches() throws SQLException {
+        if (pending > 0) {
+            for (PreparedStatement statement : List.of(upsertFile, insertClass, insertField, insertMethod,
+                                                       insertRelation)) {
+                statement.executeBatch();
+            }
+            pending = 0;
+        }
+    }
+
+    private String digest(FileAnalysis analysis) throws IOException {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                                                         .digest(mapper.writeValueAsBytes(analysis)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
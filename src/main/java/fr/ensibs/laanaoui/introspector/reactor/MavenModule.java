@@ -0,0 +1,14 @@
+package fr.ensibs.laanaoui.introspector.reactor;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A module of a Maven reactor.
+ *
+ * @param name        the artifact identifier of the module, or its directory name when the POM does not declare one
+ * @param directory   the directory of the module {@code pom.xml}
+ * @param sourceRoots the main source directories of the module, existing or not, in declaration order
+ */
+public record MavenModule(String name, Path directory, List<Path> sourceRoots) {
+}
@@ -0,0 +1,165 @@
+package fr.ensibs.laanaoui.introspector.reactor;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the modules of a Maven reactor from its POM files, without Maven.
+ * <p>
+ * The {@code <modules>} of the root {@code pom.xml} are followed recursively; modules declared in profiles are not.
+ * Every POM whose packaging is not {@code pom} is a module, with {@code src/main/java} (or its
+ * {@code <sourceDirectory>}) as source root, plus the directories added by the {@code add-source} goal of the
+ * {@code build-helper-maven-plugin}. Only the {@code basedir}, {@code project.basedir},
+ * {@code project.build.directory}, {@code project.artifactId} and {@code <properties>} placeholders of the POM
+ * itself are resolved, as parents are not read.
+ */
+public final class MavenReactor {
+
+    public static final String POM = "pom.xml";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    private MavenReactor() {
+    }
+
+    /**
+     * Returns whether {@code directory} holds a {@code pom.xml}.
+     */
+    public static boolean isReactor(Path directory) {
+        return Files.isRegularFile(directory.resolve(POM));
+    }
+
+    /**
+     * Lists the modules of the reactor rooted at {@code root}, in the order of their declaration.
+     */
+    public static List<MavenModule> read(Path root) throws IOException {
+        List<MavenModule> modules = new ArrayList<>();
+        collect(root.toAbsolutePath().normalize(), modules, new HashSet<>());
+        return modules;
+    }
+
+    private static void collect(Path directory, List<MavenModule> modules, Set<Path> visited) throws IOException {
+        if (!visited.add(directory)) {
+            return;
+        }
+        Element project = parse(directory.resolve(POM)).getDocumentElement();
+        Map<String, String> properties = properties(project, directory);
+
+        if (!"pom".equals(text(child(project, "packaging"), properties))) {
+            modules.add(new MavenModule(properties.get("project.artifactId"), directory,
+                                        sourceRoots(project, directory, properties)));
+        }
+        for (Element module : children(child(project, "modules"), "module")) {
+            Path moduleDirectory = directory.resolve(text(module, properties)).normalize();
+            if (Files.isRegularFile(moduleDirectory)) {
+                moduleDirectory = moduleDirectory.getParent(); // <module>child/pom.xml</module>
+            }
+            collect(moduleDirectory, modules, visited);
+        }
+    }
+
+    private static List<Path> sourceRoots(Element project, Path directory, Map<String, String> properties) {
+        List<Path> roots = new ArrayList<>();
+        Element build = child(project, "build");
+        String sourceDirectory = text(child(build, "sourceDirectory"), properties);
+        roots.add(directory.resolve(sourceDirectory != null ? sourceDirectory : "src/main/java").normalize());
+
+        for (Element plugin : children(child(build, "plugins"), "plugin")) {
+            if (!"build-helper-maven-plugin".equals(text(child(plugin, "artifactId"), properties))) {
+                continue;
+            }
+            for (Element execution : children(child(plugin, "executions"), "execution")) {
+                List<Element> goals = children(child(execution, "goals"), "goal");
+                if (goals.stream().anyMatch(goal -> "add-source".equals(text(goal, properties)))) {
+                    for (Element source : children(child(child(execution, "configuration"), "sources"), "source")) {
+                        Path root = directory.resolve(text(source, properties)).normalize();
+                        if (!roots.contains(root)) {
+                            roots.add(root);
+                        }
+                    }
+                }
+            }
+        }
+        return List.copyOf(roots);
+    }
+
+    private static Map<String, String> properties(Element project, Path directory) {
+        Map<String, String> properties = new HashMap<>();
+        for (Element property : children(child(project, "properties"), null)) {
+            properties.put(property.getTagName(), property.getTextContent().strip());
+        }
+        String artifactId = text(child(project, "artifactId"), properties);
+        properties.put("project.artifactId", artifactId != null ? artifactId : directory.getFileName().toString());
+        properties.put("basedir", directory.toString());
+        properties.put("project.basedir", directory.toString());
+        properties.put("project.build.directory", directory.resolve("target").toString());
+        return properties;
+    }
+
+    private static Document parse(Path pom) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(pom.toFile());
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Cannot read " + pom, e);
+        }
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> children = children(parent, name);
+        return children.isEmpty() ? null : children.get(0);
+    }
+
+    /**
+     * Returns the child elements of {@code parent} with the given name, or all of them when {@code name} is
+     * {@code null}.
+     */
+    private static List<Element> children(Element parent, String name) {
+        List<Element> children = new ArrayList<>();
+        if (parent == null) {
+            return children;
+        }
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && (name == null || name.equals(element.getTagName()))) {
+                children.add(element);
+            }
+        }
+        return children;
+    }
+
+    private static String text(Element element, Map<String, String> properties) {
+        if (element == null) {
+            return null;
+        }
+        Matcher matcher = PLACEHOLDER.matcher(element.getTextContent().strip());
+        StringBuilder text = new StringBuilder();
+        while (matcher.find()) {
+            String value = properties.get(matcher.group(1));
+            matcher.appendReplacement(text, Matcher.quoteReplacement(value != null ? value : matcher.group()));
+        }
+        matcher.appendTail(text);
+        return text.toString();
+    }
+}
@@ -0,0 +1,290 @@
+package fr.ensibs.laanaoui.introspector.server;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.ensibs.laanaoui.introspector.IncrementalAnalysis;
+import fr.ensibs.laanaoui.introspector.SourceWalker;
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.model.ClassInfo;
+import fr.ensibs.laanaoui.introspector.model.FileAnalysis;
+import fr.ensibs.laanaoui.introspector.model.Relation;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a warm {@link IncrementalAnalysis} over HTTP on the loopback interface, so that IDE integrations and
+ * hooks pay neither the JVM startup nor a full analysis on every call.
+ * <ul>
+ *     <li>{@code POST /analyze[?path=<dir>]}: analyzes the new and changed files of the project, or of one of its
+ *     directories, walked with the rules of the whole project, the files elsewhere being left as they are;</li>
+ *     <li>{@code POST /refresh}: analyzes again the files listed in the body, one path per line, and drops the
+ *     deleted ones;</li>
+ *     <li>{@code GET /query[?class=<name>][&package=<prefix>][&type=class|interface]}: returns the matching
+ *     classes and the relations they take part in, in the schema of {@code project_analysis.json};</li>
+ *     <li>{@code GET /model}: returns the whole model;</li>
+ *     <li>{@code POST /shutdown}: stops the server.</li>
+ * </ul>
+ * <p>
+ * Listening on the loopback interface does not keep out the web pages open in a local browser, which can send
+ * cross-site requests to it, or reach it through DNS rebinding. Every request must therefore name the server by a
+ * loopback {@code Host}, and carry the {@linkplain #token() token} of the run in an
+ * {@code Authorization: Bearer <token>} header, which a page can neither know nor send without a preflight that
+ * the server does not answer. The analyzed directories are confined to the project: {@code /analyze} only takes a
+ * directory of it, and {@code /refresh} only the files the {@link SourceWalker} would list, or that the model
+ * already holds.
+ */
+public final class AnalysisServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisServer.class);
+
+    private static final Set<String> LOOPBACK_HOSTS = Set.of("localhost", "127.0.0.1", "[::1]");
+
+    private final IncrementalAnalysis analysis;
+    private final Path projectRoot;
+    private final SourceWalker walker;
+    private final boolean rawRelations;
+    private final String token;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * @param projectRoot the absolute and normalized root of the project
+     * @param walker      lists the analyzed files of the project
+     */
+    public AnalysisServer(IncrementalAnalysis analysis, Path projectRoot, SourceWalker walker, boolean rawRelations,
+                          int port) throws IOException {
+        this.analysis = analysis;
+        this.projectRoot = projectRoot;
+        this.walker = walker;
+        this.rawRelations = rawRelations;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/analyze", exchange -> handle(exchange, "POST", this::analyze));
+        server.createContext("/refresh", exchange -> handle(exchange, "POST", this::refresh));
+        server.createContext("/query", exchange -> handle(exchange, "GET", this::query));
+        server.createContext("/model", exchange -> handle(exchange, "GET", this::model));
+        server.createContext("/shutdown", exchange -> handle(exchange, "POST", this::shutdown));
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Introspector server listening on http://{}:{}", server.getAddress().getHostString(),
+                    server.getAddress().getPort());
+    }
+
+    /**
+     * Returns the secret the requests must carry, drawn anew for every server.
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Blocks until the server is stopped through {@code /shutdown}.
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        stopped.countDown();
+    }
+
+    private void analyze(HttpExchange exchange) throws IOException {
+        String path = queryParameters(exchange).get("path");
+        Path root = path == null ? projectRoot : resolve(path);
+        if (!root.startsWith(projectRoot)) {
+            throw new IllegalArgumentException(path + " is outside of the project " + projectRoot);
+        }
+        IncrementalAnalysis.Update update = analysis.analyze(projectRoot, root);
+        respond(exchange, 200, mapper.writeValueAsBytes(update));
+    }
+
+    private void refresh(HttpExchange exchange) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        for (String line : body.split("\\R")) {
+            if (!line.isBlank()) {
+                Path path = resolve(line.strip());
+                if (walker.accepts(projectRoot, path) || isAnalyzed(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+        IncrementalAnalysis.Update update = analysis.refresh(paths);
+        respond(exchange, 200, mapper.writeValueAsBytes(update));
+    }
+
+    private void query(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = queryParameters(exchange);
+        String name = parameters.get("class");
+        String packagePrefix = parameters.get("package");
+        String type = parameters.get("type");
+
+        FileAnalysis result = analysis.read(model -> {
+            List<ClassInfo> classes = new ArrayList<>();
+            List<Relation> relations = new ArrayList<>();
+            Set<String> names = new HashSet<>();
+            model.forEach(file -> file.classes().stream()
+                                      .filter(clazz -> name == null || clazz.name().equals(name))
+                                      .filter(clazz -> packagePrefix == null
+                                              || clazz.packageName().startsWith(packagePrefix))
+                                      .filter(clazz -> type == null || clazz.type().equals(type))
+                                      .forEach(clazz -> {
+                                          classes.add(clazz);
+                                          names.add(clazz.name());
+                                      }));
+            model.forEach(file -> file.relations().stream()
+                                      .filter(relation -> names.contains(relation.source())
+                                              || names.contains(relation.target()))
+                                      .forEach(relations::add));
+            return new FileAnalysis("query", classes, relations);
+        });
+        respond(exchange, 200, writeModel(List.of(result)));
+    }
+
+    private void model(HttpExchange exchange) throws IOException {
+        List<FileAnalysis> files = analysis.read(model -> {
+            List<FileAnalysis> all = new ArrayList<>(model.fileCount());
+            model.forEach(all::add);
+            return all;
+        });
+        respond(exchange, 200, writeModel(files));
+    }
+
+    private void shutdown(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "{}".getBytes(StandardCharsets.UTF_8));
+        new Thread(this::stop, "introspector-server-stop").start();
+    }
+
+    private byte[] writeModel(List<FileAnalysis> files) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        try (JsonAnalysisWriter writer = new JsonAnalysisWriter(generator, rawRelations)) {
+            for (FileAnalysis file : files) {
+                writer.accept(file);
+            }
+            writer.finish();
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isAnalyzed(Path path) {
+        return analysis.read(model -> model.sources().contains(path.toString())
+                || model.sources().stream().anyMatch(source -> ClassFiles.file(source).equals(path)));
+    }
+
+    private Path resolve(String path) {
+        Path resolved = Paths.get(path);
+        return (resolved.isAbsolute() ? resolved : projectRoot.resolve(resolved)).normalize();
+    }
+
+    /**
+     * Returns whether the request names the server by a loopback host, not a rebound domain, and carries the token.
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return false;
+        }
+        int port = host.lastIndexOf(':');
+        if (port > host.lastIndexOf(']')) {
+            host = host.substring(0, port);
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        return LOOPBACK_HOSTS.contains(host.toLowerCase(Locale.ROOT)) && authorization != null
+                && MessageDigest.isEqual(authorization.getBytes(StandardCharsets.UTF_8),
+                                         ("Bearer " + token).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try {
+            if (!isAuthorized(exchange)) {
+                respond(exchange, 403, error("Expected a loopback Host and the token of the server"));
+                return;
+            }
+            if (!method.equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error("Expected " + method));
+                return;
+            }
+            handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error handling {}", exchange.getRequestURI(), e);
+            respond(exchange, 500, error(e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] error(String message) throws IOException {
+        return mapper.writeValueAsBytes(Map.of("error", String.valueOf(message)));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                               URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
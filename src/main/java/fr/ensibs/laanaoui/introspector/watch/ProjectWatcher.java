@@ -0,0 +1,191 @@
+package fr.ensibs.laanaoui.introspector.watch;
+
+import fr.ensibs.laanaoui.introspector.IncrementalAnalysis;
+import fr.ensibs.laanaoui.introspector.SourceWalker;
+import fr.ensibs.laanaoui.introspector.bytecode.ClassFiles;
+import fr.ensibs.laanaoui.introspector.output.JsonAnalysisWriter;
+import fr.ensibs.laanaoui.introspector.output.OutputFormat;
+import fr.ensibs.laanaoui.introspector.output.OutputTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches a project tree and keeps the analysis and its output file up to date as files are saved.
+ * <p>
+ * Every directory the {@link SourceWalker} descends into is registered with a {@link WatchService}, so ignored and
+ * build directories are not watched. Events are collected until the tree has
+ * been quiet for the debounce delay, so that a burst (a save-all, a branch switch) is handled as one update; then
+ * only the created, modified or deleted files are analyzed again, and the output is rewritten from the in-memory
+ * model, through an atomic {@link OutputTarget} so that readers never see it half-written. New directories are
+ * registered and their files analyzed; when the watch service overflows, the whole tree is rescanned.
+ * <p>
+ * Only the analysis is incremental: the output document merges the relations of all the files, so every update
+ * rewrites it in full, in time proportional to the size of the project rather than to the change.
+ */
+public final class ProjectWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProjectWatcher.class);
+
+    private final IncrementalAnalysis analysis;
+    private final SourceWalker walker;
+    private final Path root;
+    private final Path output;
+    private final long debounceMillis;
+    private final boolean pretty;
+    private final boolean rawRelations;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * @param walker lists the watched directories and the analyzed files in them
+     */
+    public ProjectWatcher(IncrementalAnalysis analysis, SourceWalker walker, Path root, Path output,
+                          long debounceMillis, boolean pretty, boolean rawRelations) {
+        this.analysis = analysis;
+        this.walker = walker;
+        this.root = root.toAbsolutePath().normalize();
+        this.output = output.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.pretty = pretty;
+        this.rawRelations = rawRelations;
+    }
+
+    /**
+     * Analyzes the whole tree, writes the output, then applies changes until the thread is interrupted.
+     */
+    public void run() throws IOException {
+        try (WatchService watchService = root.getFileSystem().newWatchService()) {
+            register(watchService, root);
+            IncrementalAnalysis.Update update = analysis.analyze(root);
+            writeOutput();
+            logger.info("Analyzed {} files in {} ms, watching {}", update.analyzed(), update.millis(), root);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = collect(watchService, changed);
+                long start = System.nanoTime();
+                update = overflow ? analysis.analyze(root) : analysis.refresh(changed);
+                if (update.analyzed() + update.removed() > 0) {
+                    writeOutput();
+                    logger.info("Updated {} files, removed {} in {} ms", update.analyzed(), update.removed(),
+                                (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a first event, then gathers the following ones until none came for the debounce delay.
+     *
+     * @return whether events were lost and the tree must be rescanned
+     */
+    private boolean collect(WatchService watchService, Set<Path> changed) throws InterruptedException, IOException {
+        boolean overflow = false;
+        WatchKey key = watchService.take();
+        while (key != null) {
+            Path directory = directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    overflow = true;
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    changed.addAll(register(watchService, path));
+                } else if (Files.isRegularFile(path) && walker.accepts(root, path)) {
+                    changed.add(path);
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && isAnalyzed(path)) {
+                    changed.add(path);
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    changed.addAll(sourcesUnder(path)); // a deleted directory takes its files along
+                }
+            }
+            if (!key.reset()) {
+                directories.remove(key);
+            }
+            key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+        }
+        return overflow;
+    }
+
+    /**
+     * Returns whether the model holds {@code path}, or entries of it if it is an archive.
+     */
+    private boolean isAnalyzed(Path path) {
+        return analysis.read(model -> model.sources().contains(path.toString())
+                || model.sources().stream().anyMatch(source -> ClassFiles.file(source).equals(path)));
+    }
+
+    /**
+     * Returns the analyzed files under {@code directory}, archives standing for their entries.
+     */
+    private List<Path> sourcesUnder(Path directory) {
+        return analysis.read(model -> model.sources().stream()
+                                           .map(ClassFiles::file)
+                                           .filter(file -> file.startsWith(directory))
+                                           .distinct()
+                                           .toList());
+    }
+
+    /**
+     * Registers {@code start} and the subdirectories the walker descends into.
+     *
+     * @return the analyzed files found in them
+     */
+    private List<Path> register(WatchService watchService, Path start) throws IOException {
+        SourceWalker.Listing listing = walker.walk(root, start);
+        for (Path directory : listing.directories()) {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                              StandardWatchEventKinds.ENTRY_MODIFY,
+                                              StandardWatchEventKinds.ENTRY_DELETE);
+            directories.put(key, directory);
+        }
+        return listing.files();
+    }
+
+    /**
+     * Rewrites the whole output from the model, in the order of the sources a fresh run would walk them in, so the
+     * output matches the one of a fresh run. The files are materialized and written one at a time under the read
+     * lock, which only delays the next update: the watcher is the only thread updating the model.
+     */
+    private void writeOutput() throws IOException {
+        try (OutputTarget.Output target = new OutputTarget(output, false).open()) {
+            try (JsonAnalysisWriter writer = JsonAnalysisWriter.create(target.stream(), OutputFormat.JSON, pretty,
+                                                                       rawRelations)) {
+                try {
+                    analysis.read(model -> {
+                        for (String source : model.sources().stream().sorted(ClassFiles.SOURCE_ORDER).toList()) {
+                            try {
+                                writer.accept(model.get(source));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                        return null;
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.finish();
+            }
+            target.commit();
+        }
+    }
+}